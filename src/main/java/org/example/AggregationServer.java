@@ -0,0 +1,311 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// HTTP-сервис агрегации: JVM живёт между запросами, поэтому после первых запросов разбор идёт
+// уже скомпилированным C2 кодом, а буферы и пул потоков Aggregator переиспользуются.
+//
+//   GET    /aggregate?file=measurements.txt[&engine=aggregator][&stations=A,B][&prefix=St]
+//                    [&format=ndjson|csv|text][&job=id]
+//   GET    /jobs          - выполняющиеся задачи
+//   DELETE /jobs/{id}     - отмена задачи
+//
+// -Dport=8080 -Dhost=127.0.0.1 -Droot=. (файлы только внутри root) -DmaxJobs=2 -Dthreads=N
+// -Dwarmup=файл (прогреть JIT до приёма запросов)
+public class AggregationServer {
+
+    // Выполняющаяся задача: по флагу cancelled потоки Aggregator прерывают разбор
+    record Job(String id, Path file, long startedAt, AtomicBoolean cancelled) {
+    }
+
+    private final Path root;
+    private final Map<String, Aggregator> engines;
+    private final Semaphore jobSlots;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong jobIds = new AtomicLong();
+
+    AggregationServer(final Path root,
+                      final Map<String, Aggregator> engines,
+                      final int maxJobs) {
+        this.root = root;
+        this.engines = engines;
+        this.jobSlots = new Semaphore(maxJobs);
+    }
+
+    static void main(final String[] args) throws Exception {
+        final int port = Integer.getInteger("port", 8080);
+        final String host = System.getProperty("host", "127.0.0.1");
+        final Path root = Path.of(System.getProperty("root", ".")).toAbsolutePath().normalize();
+        final int maxJobs = Integer.getInteger("maxJobs", 2);
+        final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+
+        final Aggregator aggregator = new Aggregator(numThreads, maxJobs);
+        final String warmup = System.getProperty("warmup");
+        if (warmup != null) {
+            final long start = System.currentTimeMillis();
+            for (int i = 0; i < 3; i++) {
+                aggregator.aggregate(Path.of(warmup));
+            }
+            System.out.println("Прогрев: " + (System.currentTimeMillis() - start) + "ms");
+        }
+
+        final AggregationServer service = new AggregationServer(root, Map.of("aggregator", aggregator), maxJobs);
+        final HttpServer server = service.start(new InetSocketAddress(host, port), maxJobs);
+
+        System.out.println("Сервер: http://" + host + ":" + server.getAddress().getPort()
+                + ", root: " + root + ", задач одновременно: " + maxJobs + ", потоков: " + numThreads);
+    }
+
+    // Запущенный HTTP-сервер с обработчиками этого сервиса; port 0 - любой свободный
+    HttpServer start(final InetSocketAddress address,
+                     final int maxJobs) throws IOException {
+        final HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/aggregate", this::handleAggregate);
+        server.createContext("/jobs", this::handleJobs);
+        // Потоков больше, чем задач: запросы списка и отмены не должны ждать за агрегациями
+        server.setExecutor(Executors.newFixedThreadPool(maxJobs + 4));
+        server.start();
+        return server;
+    }
+
+    private void handleAggregate(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendText(exchange, 405, "Только GET");
+                return;
+            }
+            final Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            final Aggregator engine = engines.get(query.getOrDefault("engine", "aggregator"));
+            if (engine == null) {
+                sendText(exchange, 400, "Неизвестный движок, доступны: " + engines.keySet());
+                return;
+            }
+            final String format = query.getOrDefault("format", "ndjson");
+            if (!format.equals("ndjson") && !format.equals("csv") && !format.equals("text")) {
+                sendText(exchange, 400, "Неизвестный формат: " + format);
+                return;
+            }
+            final String fileName = query.get("file");
+            if (fileName == null) {
+                sendText(exchange, 400, "Нет параметра file");
+                return;
+            }
+            final Path file = root.resolve(fileName).normalize();
+            if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+                sendText(exchange, 404, "Нет файла: " + fileName);
+                return;
+            }
+            if (query.containsKey("stations") && query.containsKey("prefix")) {
+                sendText(exchange, 400, "Нужен один из параметров stations и prefix");
+                return;
+            }
+            StationFilter filter = null;
+            if (query.containsKey("stations")) {
+                // Повторы и пустые названия ("A,,A") не ошибка - Set.of на них бросал бы исключение
+                final Set<String> stations = new LinkedHashSet<>(Arrays.asList(query.get("stations").split(",")));
+                stations.remove("");
+                if (stations.isEmpty()) {
+                    sendText(exchange, 400, "Пустой список stations");
+                    return;
+                }
+                filter = StationFilter.names(stations);
+            } else if (query.containsKey("prefix")) {
+                filter = StationFilter.prefix(query.get("prefix"));
+            }
+
+            // Очередь не держим: при занятых слотах клиент сразу получает 429 и повторяет позже
+            if (!jobSlots.tryAcquire()) {
+                sendText(exchange, 429, "Все слоты заняты");
+                return;
+            }
+            final String id = query.getOrDefault("job", Long.toString(jobIds.incrementAndGet()));
+            final Job job = new Job(id, file, System.currentTimeMillis(), new AtomicBoolean());
+            if (jobs.putIfAbsent(id, job) != null) {
+                jobSlots.release();
+                sendText(exchange, 409, "Задача " + id + " уже выполняется");
+                return;
+            }
+            try {
+                runJob(exchange, engine, job, filter, format);
+            } finally {
+                jobs.remove(id);
+                jobSlots.release();
+            }
+        }
+    }
+
+    // Заголовки уходят только после разбора, чтобы ошибка и отмена получили свой код ответа;
+    // тело - chunked, построчный формат (NDJSON/CSV) клиент может разбирать не дожидаясь конца
+    private void runJob(final HttpExchange exchange,
+                        final Aggregator engine,
+                        final Job job,
+                        final StationFilter filter,
+                        final String format) throws IOException {
+        // Для text - по названию станции, как TreeMap у движков: сортировка готовых строк "St10=..." и
+        // "St1=..." сравнивала бы '=' с цифрами; построчные форматы - в порядке обхода
+        final Map<String, String> rows = format.equals("text") ? new TreeMap<>() : new LinkedHashMap<>();
+        final long start = System.nanoTime();
+        try {
+            engine.aggregate(job.file(), filter, (station, min, max, sum, count) ->
+                    rows.put(station, formatRow(format, station, min, max, sum, count)), job.cancelled());
+        } catch (final CancellationException e) {
+            sendText(exchange, 409, "Задача " + job.id() + " отменена");
+            return;
+        } catch (final NoSuchFileException e) {
+            sendText(exchange, 404, "Нет файла: " + job.file());
+            return;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendText(exchange, 503, "Сервер останавливается");
+            return;
+        } catch (final IOException | RuntimeException e) {
+            // Сбой потока Aggregator (длинная строка, переполнение словаря) приходит как IOException:
+            // без ответа клиент увидел бы только оборванное соединение
+            sendText(exchange, 500, "Ошибка агрегации: " + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+            return;
+        }
+        final long scanMillis = (System.nanoTime() - start) / 1_000_000;
+
+        exchange.getResponseHeaders().set("Content-Type", switch (format) {
+            case "ndjson" -> "application/x-ndjson; charset=utf-8";
+            case "csv" -> "text/csv; charset=utf-8";
+            default -> "text/plain; charset=utf-8";
+        });
+        exchange.getResponseHeaders().set("X-Job-Id", job.id());
+        exchange.getResponseHeaders().set("X-Scan-Millis", Long.toString(scanMillis));
+        exchange.sendResponseHeaders(200, 0);
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            if (format.equals("text")) {
+                // Классический вид, как у движков: {A=min/mean/max, B=...}
+                out.write("{");
+                out.write(String.join(", ", rows.values()));
+                out.write("}\n");
+                return;
+            }
+            if (format.equals("csv")) {
+                out.write("station,min,mean,max,count\n");
+            }
+            for (final String row : rows.values()) {
+                out.write(row);
+                out.write('\n');
+            }
+        }
+    }
+
+    private static String formatRow(final String format,
+                                    final String station,
+                                    final int min,
+                                    final int max,
+                                    final long sum,
+                                    final long count) {
+        final String mean = String.format(Locale.ROOT, "%.1f", sum / 10.0 / count);
+        final String minText = String.format(Locale.ROOT, "%.1f", min / 10.0);
+        final String maxText = String.format(Locale.ROOT, "%.1f", max / 10.0);
+        return switch (format) {
+            case "ndjson" -> "{\"station\":\"" + escapeJson(station) + "\",\"min\":" + minText
+                    + ",\"mean\":" + mean + ",\"max\":" + maxText + ",\"count\":" + count + "}";
+            case "csv" -> escapeCsv(station) + "," + minText + "," + mean + "," + maxText + "," + count;
+            default -> station + "=" + minText + "/" + mean + "/" + maxText;
+        };
+    }
+
+    private void handleJobs(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            final String path = exchange.getRequestURI().getPath();
+            final String method = exchange.getRequestMethod();
+            if (method.equals("GET") && (path.equals("/jobs") || path.equals("/jobs/"))) {
+                final long now = System.currentTimeMillis();
+                final StringBuilder body = new StringBuilder();
+                for (final Job job : jobs.values()) {
+                    body.append("{\"job\":\"").append(escapeJson(job.id()))
+                            .append("\",\"file\":\"").append(escapeJson(job.file().toString()))
+                            .append("\",\"elapsedMillis\":").append(now - job.startedAt())
+                            .append(",\"cancelled\":").append(job.cancelled().get()).append("}\n");
+                }
+                sendText(exchange, 200, body.toString());
+                return;
+            }
+            if (method.equals("DELETE") && path.startsWith("/jobs/")) {
+                final Job job = jobs.get(path.substring("/jobs/".length()));
+                if (job == null) {
+                    sendText(exchange, 404, "Нет такой задачи");
+                    return;
+                }
+                job.cancelled().set(true);
+                sendText(exchange, 202, "Отмена задачи " + job.id());
+                return;
+            }
+            sendText(exchange, 405, "GET /jobs или DELETE /jobs/{id}");
+        }
+    }
+
+    private static void sendText(final HttpExchange exchange,
+                                 final int status,
+                                 final String text) throws IOException {
+        final byte[] body = (text.endsWith("\n") || text.isEmpty() ? text : text + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(final String rawQuery) {
+        final Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        // Встроенный сервер читает строку запроса как ISO-8859-1: неэкранированный UTF-8
+        // (curl ...?stations=Kraków) восстанавливаем, экранированный %XX это не затрагивает
+        final String utf8Query = new String(rawQuery.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+        for (final String pair : utf8Query.split("&")) {
+            final int eq = pair.indexOf('=');
+            if (eq > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String escapeJson(final String value) {
+        final StringBuilder sb = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String escapeCsv(final String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,297 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Переиспользуемый агрегатор для встраивания в долгоживущий сервис.
+// Владеет пулом потоков, direct-буферами и таблицами потоков; между вызовами они не выбрасываются,
+// а сбрасываются, поэтому в установившемся режиме вызов почти ничего не аллоцирует.
+// Потокобезопасен: каждый одновременный вызов берёт свой комплект буферов, таблиц и словаря (Workspace).
+public final class Aggregator implements AutoCloseable {
+
+    // Обход результата: названия берутся из словаря, температуры - в десятых долях градуса
+    @FunctionalInterface
+    public interface StationVisitor {
+        void visit(String station, int minTenths, int maxTenths, long sumTenths, long count);
+    }
+
+    private static final int READ_SIZE = 8 * 1024 * 1024; // 8 MB на поток
+    // Перед областью чтения - место под хвост строки, после - запас для чтения словами по 8 байт
+    private static final int HEADROOM = 128;
+    private static final int PADDING = 128;
+    private static final AtomicBoolean NEVER_CANCELLED = new AtomicBoolean();
+    // Словарь только растёт: если после прошлых вызовов в нём не осталось места под файл
+    // по правилам 1BRC (до 10 000 станций), вызов начинает с нового
+    private static final int DICTIONARY_REUSE_LIMIT = StationDictionary.MAX_STATIONS - 10_000;
+
+    // Всё, что нужно одному вызову: буфер и таблица на каждый поток, таблица для слияния и словарь.
+    // Словарь переживает вызовы (повторный разбор того же файла не создаёт названий заново),
+    // но принадлежит Workspace: вызовы с разными файлами не копят станции в одном общем словаре
+    private final class Workspace {
+        final ByteBuffer[] buffers = new ByteBuffer[threads];
+        final MemorySegment[] segments = new MemorySegment[threads];
+        final StationStats[] stats = new StationStats[threads];
+        final StationStats merged = new StationStats(StationDictionary.MAX_STATIONS);
+        final ByteBuffer scratch = ByteBuffer.allocateDirect(HEADROOM);
+        final long[] bounds = new long[threads + 1];
+        final List<Future<?>> futures = new ArrayList<>(threads);
+        StationDictionary dictionary = new StationDictionary();
+
+        Workspace() {
+            for (int i = 0; i < threads; i++) {
+                buffers[i] = ByteBuffer.allocateDirect(HEADROOM + READ_SIZE + PADDING);
+                segments[i] = MemorySegment.ofBuffer(buffers[i]);
+                stats[i] = new StationStats();
+            }
+        }
+    }
+
+    private final int threads;
+    private final int maxConcurrentCalls;
+    private final ExecutorService pool;
+    private final BlockingQueue<Workspace> idleWorkspaces;
+    private final AtomicInteger createdWorkspaces = new AtomicInteger();
+
+    public Aggregator() {
+        this(Runtime.getRuntime().availableProcessors(), 2);
+    }
+
+    public Aggregator(final int threads,
+                      final int maxConcurrentCalls) {
+        this.threads = threads;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.idleWorkspaces = new ArrayBlockingQueue<>(maxConcurrentCalls);
+        final AtomicInteger threadIds = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "aggregator-worker-" + threadIds.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Агрегирует файл и обходит станции (в порядке id, не по алфавиту)
+    public void aggregate(final Path file,
+                          final StationVisitor visitor) throws IOException, InterruptedException {
+        aggregate(file, visitor, NEVER_CANCELLED);
+    }
+
+    // Вариант с отменой: потоки проверяют флаг перед каждым блоком и бросают CancellationException
+    public void aggregate(final Path file,
+                          final StationVisitor visitor,
+                          final AtomicBoolean cancelled) throws IOException, InterruptedException {
+        aggregate(file, null, visitor, cancelled);
+    }
+
+    // filter (может быть null) отсекает строки ещё в горячем цикле, до разбора температуры
+    public void aggregate(final Path file,
+                          final StationFilter filter,
+                          final StationVisitor visitor,
+                          final AtomicBoolean cancelled) throws IOException, InterruptedException {
+        final Workspace workspace = acquire();
+        if (workspace.dictionary.size() > DICTIONARY_REUSE_LIMIT) {
+            workspace.dictionary = new StationDictionary();
+        }
+        final StationDictionary dictionary = workspace.dictionary;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final StationStats merged = run(channel, workspace, filter, cancelled);
+            final int size = dictionary.size();
+            for (int id = 0; id < size; id++) {
+                if (merged.count[id] > 0 && (filter == null || filter.matches(dictionary.name(id)))) {
+                    visitor.visit(dictionary.name(id), merged.min[id], merged.max[id], merged.sum[id], merged.count[id]);
+                }
+            }
+        } finally {
+            idleWorkspaces.add(workspace);
+        }
+    }
+
+    // Удобный вариант с отсортированным результатом в формате движков (min/mean/max)
+    public SortedMap<String, String> aggregate(final Path file) throws IOException, InterruptedException {
+        final TreeMap<String, String> results = new TreeMap<>();
+        aggregate(file, (station, min, max, sum, count) ->
+                results.put(station, String.format("%.1f/%.1f/%.1f", min / 10.0, sum / 10.0 / count, max / 10.0)));
+        return results;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private Workspace acquire() throws InterruptedException {
+        final Workspace idle = idleWorkspaces.poll();
+        if (idle != null) {
+            return idle;
+        }
+        if (createdWorkspaces.incrementAndGet() <= maxConcurrentCalls) {
+            return new Workspace();
+        }
+        createdWorkspaces.decrementAndGet();
+        return idleWorkspaces.take();
+    }
+
+    private StationStats run(final FileChannel channel,
+                             final Workspace workspace,
+                             final StationFilter filter,
+                             final AtomicBoolean cancelled) throws IOException, InterruptedException {
+        final long fileSize = channel.size();
+        final long[] bounds = workspace.bounds;
+        for (int i = 0; i < threads; i++) {
+            bounds[i] = alignToLineStart(channel, fileSize / threads * i, fileSize, workspace.scratch);
+        }
+        bounds[threads] = fileSize;
+
+        final List<Future<?>> futures = workspace.futures;
+        futures.clear();
+        for (int i = 0; i < threads; i++) {
+            final int worker = i;
+            futures.add(pool.submit(() -> {
+                processRange(channel, bounds[worker], bounds[worker + 1], fileSize, workspace.buffers[worker],
+                        workspace.segments[worker], workspace.dictionary, workspace.stats[worker], filter, cancelled);
+                return null;
+            }));
+        }
+
+        // Ждём все задачи, даже если одна упала: иначе буферы вернутся в пул, пока их ещё пишут
+        Throwable failure = null;
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (final ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+
+        final StationStats merged = workspace.merged;
+        final int size = workspace.dictionary.size();
+        merged.reset(size);
+        for (final StationStats stats : workspace.stats) {
+            if (failure == null) {
+                merged.merge(stats, size);
+            }
+            stats.reset(size);
+        }
+        if (failure instanceof CancellationException cancellation) {
+            throw cancellation;
+        }
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+        return merged;
+    }
+
+    // Позиция первой строки, начинающейся не раньше position
+    private static long alignToLineStart(final FileChannel channel,
+                                         final long position,
+                                         final long fileSize,
+                                         final ByteBuffer scratch) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        long pos = position - 1;
+        while (pos < fileSize) {
+            scratch.clear();
+            final int n = channel.read(scratch, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (scratch.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return fileSize;
+    }
+
+    // Поток читает свой диапазон целых строк блоками в свой буфер; хвост строки переносится
+    // в запас перед областью чтения, поэтому данные в буфере всегда непрерывны
+    private static void processRange(final FileChannel channel,
+                              final long start,
+                              final long end,
+                              final long fileSize,
+                              final ByteBuffer buffer,
+                              final MemorySegment segment,
+                              final StationDictionary dictionary,
+                              final StationStats stats,
+                              final StationFilter filter,
+                              final AtomicBoolean cancelled) throws IOException {
+        long pos = start;
+        int carry = 0;
+
+        while (pos < end) {
+            if (cancelled.get()) {
+                throw new CancellationException("Агрегация отменена");
+            }
+            final int toRead = (int) Math.min(READ_SIZE, end - pos);
+            buffer.clear().position(HEADROOM).limit(HEADROOM + toRead);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, pos + buffer.position() - HEADROOM) < 0) {
+                    break;
+                }
+            }
+            final int limit = buffer.position();
+            if (limit == HEADROOM) {
+                break;
+            }
+
+            int lineEnd = limit;
+            if (pos + (limit - HEADROOM) < end) {
+                // Середина диапазона: разбираем до последнего '\n'
+                while (lineEnd > HEADROOM && buffer.get(lineEnd - 1) != '\n') {
+                    lineEnd--;
+                }
+            } else if (end == fileSize && buffer.get(limit - 1) != '\n') {
+                // Последняя строка файла без перевода строки
+                buffer.limit(limit + 1).put(limit, (byte) '\n');
+                lineEnd = limit + 1;
+            }
+
+            long linePos = HEADROOM - carry;
+            if (filter == null) {
+                while (linePos < lineEnd) {
+                    linePos = StationDictionarySolution.processLine(segment, linePos, dictionary, stats);
+                }
+            } else {
+                while (linePos < lineEnd) {
+                    linePos = StationDictionarySolution.processFilteredLine(segment, linePos, filter, dictionary, stats);
+                }
+            }
+
+            carry = Math.max(0, limit - lineEnd);
+            if (carry > HEADROOM) {
+                throw new IOException("Строка длиннее " + HEADROOM + " байт");
+            }
+            MemorySegment.copy(segment, lineEnd, segment, HEADROOM - carry, carry);
+            pos += limit - HEADROOM;
+        }
+    }
+
+    // Демонстрация повторных вызовов: java -Dfile=... -Diterations=20 org.example.Aggregator
+    static void main(final String[] args) throws Exception {
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+        final int iterations = Integer.getInteger("iterations", 10);
+        final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+
+        try (Aggregator aggregator = new Aggregator(numThreads, 2)) {
+            SortedMap<String, String> results = null;
+            for (int i = 0; i < iterations; i++) {
+                final long start = System.currentTimeMillis();
+                results = aggregator.aggregate(filePath);
+                System.out.println("Итерация " + i + ": " + (System.currentTimeMillis() - start) + "ms");
+            }
+            System.out.println(results);
+        }
+    }
+}
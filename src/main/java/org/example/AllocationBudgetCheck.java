@@ -0,0 +1,167 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Проверка бюджета аллокаций горячего пути: каждый движок запускается в отдельной JVM на двух
+// датасетах (rows и rows * scale строк), аллокации всех потоков JVM берутся из
+// ThreadMXBean.getTotalThreadAllocatedBytes. Постоянные расходы (старт, JIT, таблицы, вывод)
+// одинаковы в обоих прогонах, поэтому разница, делённая на разницу строк, - это байты на строку.
+// Движок без аллокаций на строку даёт около нуля; больше bytesPerLine - провал и код выхода 1.
+//
+// -Depsilon=true дополнительно гоняет большой датасет под Epsilon GC (сборщика нет вовсе)
+// с кучей -Dheap: если память кончилась, движок аллоцирует пропорционально входу.
+//
+// java -Dengines=StationDictionarySolution,MultiCursorSolution -Drows=2000000 -Dscale=5 \
+//      -DbytesPerLine=0.01 -Depsilon=true -Dheap=256m org.example.AllocationBudgetCheck
+//
+// mvn verify -Pallocation-budget запускает проверку для BUDGETED_ENGINES на -Drows=500000 с порогом
+// 1 байт на строку (датасеты - в target/allocation-budget); обычная сборка её не запускает
+public class AllocationBudgetCheck {
+
+    // Движки, которые обязаны держать бюджет; остальные можно проверить через -Dengines
+    private static final List<String> BUDGETED_ENGINES = List.of(
+            "StationDictionarySolution",
+            "MultiCursorSolution",
+            "Aggregator",
+            "StreamingSolution"
+    );
+
+    private static final String MARKER = "ALLOCATED_BYTES=";
+
+    record Measurement(String engine,
+                       long smallBytes,
+                       long largeBytes,
+                       double bytesPerLine,
+                       Boolean epsilonPassed) {
+
+        boolean passed(final double budget) {
+            return bytesPerLine <= budget && !Boolean.FALSE.equals(epsilonPassed);
+        }
+    }
+
+    static void main(final String[] args) throws Exception {
+        final String probe = System.getProperty("probe");
+        if (probe != null) {
+            runProbe(probe, args);
+            return;
+        }
+
+        final List<String> engines = listProperty("engines", BUDGETED_ENGINES);
+        final long rows = Long.getLong("rows", 2_000_000L);
+        final int scale = Integer.getInteger("scale", 5);
+        final double budget = Double.parseDouble(System.getProperty("bytesPerLine", "0.01"));
+        final boolean epsilon = Boolean.getBoolean("epsilon");
+        final String heap = System.getProperty("heap", "256m");
+        final int threads = Integer.getInteger("threads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+        final Path dataDir = Path.of(System.getProperty("data", "bench/data"));
+
+        Files.createDirectories(dataDir);
+        final Path small = dataset(dataDir, rows);
+        final Path large = dataset(dataDir, rows * scale);
+        final long extraLines = rows * scale - rows;
+
+        final List<Measurement> measurements = new ArrayList<>();
+        for (final String engine : engines) {
+            final long smallBytes = measure(engine, small, threads, null);
+            final long largeBytes = measure(engine, large, threads, null);
+            final double bytesPerLine = (double) Math.max(0, largeBytes - smallBytes) / extraLines;
+            final Boolean epsilonPassed = epsilon ? measure(engine, large, threads, heap) >= 0 : null;
+
+            final Measurement measurement = new Measurement(engine, smallBytes, largeBytes, bytesPerLine, epsilonPassed);
+            measurements.add(measurement);
+            System.out.printf(Locale.ROOT, "%-28s %s  %,14d -> %,14d байт, %.4f байт/строку%s%n",
+                    engine, measurement.passed(budget) ? "OK  " : "FAIL",
+                    smallBytes, largeBytes, bytesPerLine,
+                    epsilonPassed == null ? "" : epsilonPassed ? ", Epsilon " + heap + ": OK" : ", Epsilon " + heap + ": нехватка памяти");
+        }
+
+        final long failed = measurements.stream().filter(m -> !m.passed(budget)).count();
+        if (failed > 0) {
+            System.out.println("Бюджет " + budget + " байт/строку превышен: " + failed + " из " + measurements.size());
+            System.exit(1);
+        }
+        System.out.println("Бюджет " + budget + " байт/строку соблюдён");
+    }
+
+    private static Path dataset(final Path dataDir,
+                                final long rows) throws Exception {
+        final Path file = dataDir.resolve("default-" + rows + ".txt");
+        if (!Files.exists(file)) {
+            System.out.println("Генерируем " + file);
+            MeasurementsGenerator.generate(MeasurementsGenerator.Shape.DEFAULT, rows, file, 42);
+        }
+        return file;
+    }
+
+    // Аллоцированные байты дочерней JVM; с heap - прогон под Epsilon GC, -1 при нехватке памяти
+    static long measure(final String engine,
+                        final Path file,
+                        final int threads,
+                        final String epsilonHeap) throws Exception {
+        final List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "--enable-preview",
+                "--add-modules", "jdk.incubator.vector",
+                "--enable-native-access=ALL-UNNAMED"
+        ));
+        if (epsilonHeap != null) {
+            command.addAll(List.of("-XX:+UnlockExperimentalVMOptions", "-XX:+UseEpsilonGC",
+                    "-Xms" + epsilonHeap, "-Xmx" + epsilonHeap, "-XX:-HeapDumpOnOutOfMemoryError"));
+        }
+        command.addAll(List.of(
+                "-Dfile=" + file,
+                "-Dthreads=" + threads,
+                "-Diterations=1",
+                "-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + threads,
+                "-Dprobe=" + engine,
+                "-cp", System.getProperty("java.class.path"),
+                AllocationBudgetCheck.class.getName()
+        ));
+
+        // Файл подаётся и на stdin - для StreamingSolution
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectInput(file.toFile())
+                .start();
+        final String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        final int exitCode = process.waitFor();
+
+        if (epsilonHeap != null && output.contains("OutOfMemoryError")) {
+            return -1;
+        }
+        final int marker = output.lastIndexOf(MARKER);
+        if (exitCode != 0 || marker < 0) {
+            throw new IllegalStateException(engine + " завершился с кодом " + exitCode + ":\n"
+                    + output.substring(Math.max(0, output.length() - 2000)));
+        }
+        final int lineEnd = output.indexOf('\n', marker);
+        return Long.parseLong(output.substring(marker + MARKER.length(), lineEnd < 0 ? output.length() : lineEnd).trim());
+    }
+
+    // Дочерняя JVM: main движка в этом же процессе, затем аллокации всех потоков, включая завершённые
+    private static void runProbe(final String engine,
+                                 final String[] args) throws Exception {
+        final Method main = Class.forName(AllocationBudgetCheck.class.getPackageName() + "." + engine)
+                .getDeclaredMethod("main", String[].class);
+        main.setAccessible(true);
+        main.invoke(null, (Object) args);
+
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        System.out.println(MARKER + threadBean.getTotalThreadAllocatedBytes());
+    }
+
+    private static List<String> listProperty(final String name,
+                                             final List<String> defaults) {
+        final String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaults;
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
@@ -0,0 +1,263 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Сквозной регрессионный бенчмарк: каждый прогон - отдельная JVM.
+// Движки x датасеты x число потоков, N повторов, медиана/p90/эффективность масштабирования,
+// результаты в JSON и сравнение с сохранённым baseline.
+//
+// java -Dengines=SwarSolution,VectorApiSolution -Dreps=5 -Dthreads=1,2,4,8 \
+//      -Ddatasets=default,high-cardinality -Drows=100000000 \
+//      -Dbaseline=bench/baseline.json org.example.BenchmarkHarness
+public class BenchmarkHarness {
+
+    private static final List<String> ALL_ENGINES = List.of(
+            "NaiveSolution",
+            "NaiveParallelSolution",
+            "ByteArrayKeySolution",
+            "FileChannelSolution",
+            "SwarSolution",
+            "SwarAndThreadLocalMaps",
+            "VectorApiSolution",
+            "DirectIoSolution",
+            "MultiProcessSolution",
+            "SharedTableSolution"
+    );
+
+    // Однопоточные движки -Dthreads не читают: прогон на каждом числе потоков - тот же замер
+    private static final Set<String> SINGLE_THREADED_ENGINES = Set.of("NaiveSolution");
+
+    // Одна строка результата в JSON - один объект, так baseline читается без парсера JSON
+    private static final Pattern RESULT_LINE = Pattern.compile(
+            "\\{\"engine\": \"([^\"]+)\", \"dataset\": \"([^\"]+)\", \"threads\": (\\d+), \"medianMs\": (\\d+)");
+
+    record Result(String engine,
+                  String dataset,
+                  int threads,
+                  long medianMs,
+                  long p90Ms,
+                  double efficiency,
+                  long[] runsMs) {
+
+        String key() {
+            return engine + "/" + dataset + "/" + threads;
+        }
+
+        String toJson() {
+            // Без прогона на 1 потоке эффективность не определена
+            final String efficiencyJson = Double.isNaN(efficiency) ? "null" : String.format(Locale.ROOT, "%.3f", efficiency);
+            return String.format(Locale.ROOT,
+                    "{\"engine\": \"%s\", \"dataset\": \"%s\", \"threads\": %d, \"medianMs\": %d, \"p90Ms\": %d, \"efficiency\": %s, \"runsMs\": %s}",
+                    engine, dataset, threads, medianMs, p90Ms, efficiencyJson, Arrays.toString(runsMs));
+        }
+    }
+
+    // Прогон, который не дошёл до конца (например, DirectIoSolution на tmpfs без O_DIRECT)
+    record Failure(String engine,
+                   String dataset,
+                   int threads,
+                   String message) {
+
+        String key() {
+            return engine + "/" + dataset + "/" + threads;
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"engine\": \"%s\", \"dataset\": \"%s\", \"threads\": %d, \"error\": \"%s\"}",
+                    engine, dataset, threads, message.replace("\\", "\\\\").replace("\"", "\\\""));
+        }
+    }
+
+    static void main(final String[] args) throws Exception {
+        final List<String> engines = listProperty("engines", ALL_ENGINES);
+        final List<String> datasets = listProperty("datasets", List.of("default", "few-stations", "high-cardinality", "long-names"));
+        final List<Integer> threadCounts = listProperty("threads", defaultThreadSweep()).stream().map(Integer::valueOf).toList();
+        final int reps = Integer.getInteger("reps", 5);
+        final long rows = Long.getLong("rows", 100_000_000L);
+        final double tolerance = Double.parseDouble(System.getProperty("tolerance", "0.10"));
+        final Path dataDir = Path.of(System.getProperty("data", "bench/data"));
+        final Path output = Path.of(System.getProperty("output", "bench/results-" + Instant.now().getEpochSecond() + ".json"));
+        final String baseline = System.getProperty("baseline");
+
+        Files.createDirectories(dataDir);
+
+        final List<Result> results = new ArrayList<>();
+        final List<Failure> failures = new ArrayList<>();
+        for (final String dataset : datasets) {
+            final Path file = dataDir.resolve(dataset + "-" + rows + ".txt");
+            if (!Files.exists(file)) {
+                System.out.println("Генерируем " + file);
+                MeasurementsGenerator.generate(MeasurementsGenerator.Shape.parse(dataset), rows, file, 42);
+            }
+
+            for (final String engine : engines) {
+                long singleThreadMedian = -1;
+                for (final int threads : SINGLE_THREADED_ENGINES.contains(engine) ? List.of(1) : threadCounts) {
+                    final long[] runs = new long[reps];
+                    try {
+                        for (int rep = 0; rep < reps; rep++) {
+                            runs[rep] = runEngine(engine, file, threads);
+                        }
+                    } catch (final IOException | IllegalStateException e) {
+                        // Упавший движок не обрывает весь прогон: ошибка в отчёт, остальные потоки этого движка
+                        // на этом датасете пропускаются - упадут так же
+                        failures.add(new Failure(engine, dataset, threads, String.valueOf(e.getMessage())));
+                        System.out.printf(Locale.ROOT, "%-24s %-18s threads=%-3d ОШИБКА: %s%n", engine, dataset, threads, e.getMessage());
+                        break;
+                    }
+                    Arrays.sort(runs);
+                    final long median = percentile(runs, 0.5);
+                    final long p90 = percentile(runs, 0.9);
+                    if (threads == 1) {
+                        singleThreadMedian = median;
+                    }
+                    // Эффективность масштабирования: T(1) / (n * T(n)), 1.0 - идеальное ускорение
+                    final double efficiency = singleThreadMedian > 0 ? (double) singleThreadMedian / (threads * median) : Double.NaN;
+
+                    final Result result = new Result(engine, dataset, threads, median, p90, efficiency, runs);
+                    results.add(result);
+                    System.out.printf(Locale.ROOT, "%-24s %-18s threads=%-3d median=%6dms p90=%6dms efficiency=%.2f%n",
+                            engine, dataset, threads, median, p90, efficiency);
+                }
+            }
+        }
+
+        writeJson(output, results, failures);
+        System.out.println("Результаты: " + output + (failures.isEmpty() ? "" : ", прогонов с ошибкой: " + failures.size()));
+
+        if (baseline != null) {
+            final int regressions = compareWithBaseline(Path.of(baseline), results, failures, tolerance);
+            if (regressions > 0) {
+                System.out.println("Регрессий: " + regressions);
+                System.exit(1);
+            }
+            System.out.println("Регрессий нет");
+        }
+    }
+
+    // Время работы дочерней JVM целиком (старт JVM + чтение + агрегация + вывод)
+    static long runEngine(final String engine,
+                          final Path file,
+                          final int threads) throws Exception {
+        final List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "--enable-preview",
+                "--add-modules", "jdk.incubator.vector",
+                "--enable-native-access=ALL-UNNAMED",
+                "-Dfile=" + file,
+                "-Dthreads=" + threads,
+                // NaiveParallelSolution работает в общем ForkJoinPool
+                "-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + threads,
+                "-cp", System.getProperty("java.class.path"),
+                "org.example." + engine
+        ));
+
+        final long start = System.nanoTime();
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        final int exitCode = process.waitFor();
+        final long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        if (exitCode != 0) {
+            throw new IllegalStateException(engine + " завершился с кодом " + exitCode + ": " + String.join(" ", command));
+        }
+        return elapsedMs;
+    }
+
+    // Nearest-rank перцентиль по отсортированному массиву
+    static long percentile(final long[] sorted,
+                           final double p) {
+        final int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static void writeJson(final Path output,
+                                  final List<Result> results,
+                                  final List<Failure> failures) throws Exception {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        final StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"java\": \"").append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"cpus\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"results\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            json.append("    ").append(results.get(i).toJson());
+            json.append(i == results.size() - 1 ? "\n" : ",\n");
+        }
+        json.append("  ],\n");
+        json.append("  \"failures\": [\n");
+        for (int i = 0; i < failures.size(); i++) {
+            json.append("    ").append(failures.get(i).toJson());
+            json.append(i == failures.size() - 1 ? "\n" : ",\n");
+        }
+        json.append("  ]\n");
+        json.append("}\n");
+        Files.writeString(output, json);
+    }
+
+    // Регрессия - медиана хуже baseline больше чем на tolerance или падение прогона, который в baseline был
+    private static int compareWithBaseline(final Path baseline,
+                                           final List<Result> results,
+                                           final List<Failure> failures,
+                                           final double tolerance) throws Exception {
+        final Map<String, Long> baselineMedians = new HashMap<>();
+        for (final String line : Files.readAllLines(baseline)) {
+            final Matcher matcher = RESULT_LINE.matcher(line);
+            if (matcher.find()) {
+                baselineMedians.put(matcher.group(1) + "/" + matcher.group(2) + "/" + matcher.group(3),
+                        Long.parseLong(matcher.group(4)));
+            }
+        }
+
+        int regressions = 0;
+        for (final Result result : results) {
+            final Long expected = baselineMedians.get(result.key());
+            if (expected == null) {
+                continue;
+            }
+            final double change = (double) (result.medianMs() - expected) / expected;
+            if (change > tolerance) {
+                regressions++;
+                System.out.printf(Locale.ROOT, "РЕГРЕССИЯ %s: %dms -> %dms (%+.1f%%)%n",
+                        result.key(), expected, result.medianMs(), change * 100);
+            }
+        }
+        for (final Failure failure : failures) {
+            if (baselineMedians.containsKey(failure.key())) {
+                regressions++;
+                System.out.println("РЕГРЕССИЯ " + failure.key() + ": " + failure.message());
+            }
+        }
+        return regressions;
+    }
+
+    private static List<String> listProperty(final String name,
+                                             final List<String> defaults) {
+        final String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaults;
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    // 1, 2, 4, ... и само число ядер
+    private static List<String> defaultThreadSweep() {
+        final int cpus = Runtime.getRuntime().availableProcessors();
+        final List<String> sweep = new ArrayList<>();
+        for (int threads = 1; threads < cpus; threads *= 2) {
+            sweep.add(Integer.toString(threads));
+        }
+        sweep.add(Integer.toString(cpus));
+        return sweep;
+    }
+}
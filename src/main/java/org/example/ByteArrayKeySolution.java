@@ -1,7 +1,10 @@
 package org.example;
 
 import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.util.*;
@@ -11,8 +14,14 @@ import java.util.concurrent.*;
 // Abha=Result[min=-32,4, max=69,1, sum=43558516,2, count=2421972]
 public class ByteArrayKeySolution {
 
-    // Wrapper для байтового массива как ключа HashMap
-    static class ByteArrayKey {
+    // Wrapper для байтового массива как ключа HashMap.
+    // Хэш - по словам из 8 байт со случайным на каждый запуск сидом: у полинома 31 * h + b
+    // легко подобрать тысячи названий с одним хэшем ("Aa" и "BB"), и поиск вырождается в перебор.
+    // Comparable нужен HashMap: переполненная корзина превращается в дерево и ищет за O(log n)
+    static class ByteArrayKey implements Comparable<ByteArrayKey> {
+        private static final VarHandle LONG_LE =
+                MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
         private final byte[] bytes;
         private final int offset;
         private final int length;
@@ -29,11 +38,18 @@ public class ByteArrayKeySolution {
         }
 
         private int computeHashCode() {
-            int h = 0;
-            for (int i = 0; i < length; i++) {
-                h = 31 * h + bytes[offset + i];
+            long h = StationDictionary.SEED;
+            int i = 0;
+            for (; i + 8 <= length; i += 8) {
+                h = StationDictionary.mix(h, (long) LONG_LE.get(bytes, offset + i));
+            }
+            long tail = 0;
+            for (int j = length - 1; j >= i; j--) {
+                tail = (tail << 8) | (bytes[offset + j] & 0xFF);
             }
-            return h;
+            h = StationDictionary.mix(h, tail ^ length);
+            // Старшие биты после умножения зависят от всех байт названия
+            return (int) (h >>> 32);
         }
 
         @Override
@@ -61,6 +77,12 @@ public class ByteArrayKeySolution {
             return true;
         }
 
+        @Override
+        public int compareTo(final ByteArrayKey other) {
+            return Arrays.compareUnsigned(bytes, offset, offset + length,
+                    other.bytes, other.offset, other.offset + other.length);
+        }
+
         // Для финального вывода
         String toStringValue() {
             return new String(bytes, offset, length);
@@ -105,13 +127,13 @@ public class ByteArrayKeySolution {
     static void main(String[] args) throws Exception {
         final long start = System.currentTimeMillis();
 
-        final Path filePath = Path.of("./measurements.txt");
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
         final RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "r");
         final FileChannel channel = file.getChannel();
         final long fileSize = channel.size();
 
         // Определяем количество потоков
-        final int numThreads = Runtime.getRuntime().availableProcessors();
+        final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
         System.out.println("Количество потоков: " + numThreads);
         final long chunkSize = fileSize / numThreads;
         System.out.println("chunkSize: " + (chunkSize / (1024 * 1024)) + "MB");
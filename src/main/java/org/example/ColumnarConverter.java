@@ -0,0 +1,181 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Разовая конвертация measurements.txt в колоночный файл (см. ColumnarFormat).
+// Разбор - тот же SWAR, что в StationDictionarySolution, через MappedLineSpliterator на кусок потока;
+// id станции - из общего StationDictionary. Каждый поток копит row group в short[] колонках,
+// кодирует её в своём буфере и дописывает в файл позиционной записью по атомарному смещению,
+// так что потоки не ждут друг друга. Группы в файле идут вперемешку по потокам - порядок задаёт индекс.
+// -Doutput=./measurements.col - выходной файл, -Drowgroup=65536 - строк в группе.
+public class ColumnarConverter {
+
+    // Буфер row group одного потока
+    static final class RowGroupWriter {
+        private final FileChannel channel;
+        private final AtomicLong nextOffset;
+        private final short[] ids;
+        private final short[] tenths;
+        private final ByteBuffer buffer;
+        private final List<ColumnarFormat.RowGroup> groups = new ArrayList<>();
+        private int count = 0;
+
+        RowGroupWriter(final FileChannel channel,
+                       final AtomicLong nextOffset,
+                       final int rowGroupSize) {
+            this.channel = channel;
+            this.nextOffset = nextOffset;
+            this.ids = new short[rowGroupSize];
+            this.tenths = new short[rowGroupSize];
+            this.buffer = ByteBuffer.allocateDirect(rowGroupSize * 4).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void add(final int id,
+                 final int temperature) {
+            ids[count] = (short) id;
+            tenths[count] = (short) temperature;
+            if (++count == ids.length) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (count == 0) {
+                return;
+            }
+            int minId = Integer.MAX_VALUE;
+            int maxId = Integer.MIN_VALUE;
+            int minTenths = Integer.MAX_VALUE;
+            int maxTenths = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                minId = Math.min(minId, ids[i]);
+                maxId = Math.max(maxId, ids[i]);
+                minTenths = Math.min(minTenths, tenths[i]);
+                maxTenths = Math.max(maxTenths, tenths[i]);
+            }
+            final int idWidth = ColumnarFormat.widthOf(minId, maxId);
+            final int tenthsWidth = ColumnarFormat.widthOf(minTenths, maxTenths);
+
+            buffer.clear();
+            encode(ids, minId, idWidth);
+            encode(tenths, minTenths, tenthsWidth);
+            buffer.flip();
+
+            final long offset = nextOffset.getAndAdd(buffer.remaining());
+            try {
+                writeFully(channel, buffer, offset);
+            } catch (final IOException e) {
+                throw new RuntimeException(e);
+            }
+            groups.add(new ColumnarFormat.RowGroup(offset, count, idWidth, tenthsWidth, minId, maxId, minTenths, maxTenths));
+            count = 0;
+        }
+
+        // Значения - смещения от минимума группы, беззнаковые
+        private void encode(final short[] column,
+                            final int base,
+                            final int width) {
+            if (width == 1) {
+                for (int i = 0; i < count; i++) {
+                    buffer.put((byte) (column[i] - base));
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    buffer.putShort((short) (column[i] - base));
+                }
+            }
+        }
+    }
+
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+        final Path outputPath = Path.of(System.getProperty("output", "./measurements.col"));
+        final int rowGroupSize = Integer.getInteger("rowgroup", 1 << 16);
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+             FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            final long fileSize = channel.size();
+            final MemorySegment fileSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+
+            final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+            System.out.println("Количество потоков: " + numThreads + ", строк в группе: " + rowGroupSize);
+
+            final StationDictionary dictionary = new StationDictionary();
+            final AtomicLong nextOffset = new AtomicLong(ColumnarFormat.HEADER_SIZE);
+            final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            final List<Future<RowGroupWriter>> futures = new ArrayList<>();
+
+            for (int i = 0; i < numThreads; i++) {
+                final long startPos = StationDictionarySolution.alignToLineStart(fileSegment, fileSize / numThreads * i, fileSize);
+                final long endPos = (i == numThreads - 1) ? fileSize : StationDictionarySolution.alignToLineStart(fileSegment, fileSize / numThreads * (i + 1), fileSize);
+                futures.add(executor.submit(() -> {
+                    final RowGroupWriter writer = new RowGroupWriter(output, nextOffset, rowGroupSize);
+                    new MappedLineSpliterator(fileSegment, startPos, endPos)
+                            .forEachRemaining(line -> writer.add(line.stationId(dictionary), line.tenths()));
+                    writer.flush();
+                    return writer;
+                }));
+            }
+
+            final List<ColumnarFormat.RowGroup> groups = new ArrayList<>();
+            for (final Future<RowGroupWriter> future : futures) {
+                groups.addAll(future.get().groups);
+            }
+            executor.shutdown();
+            groups.sort(Comparator.comparingLong(ColumnarFormat.RowGroup::offset));
+
+            // Словарь и индекс - после данных, заголовок со смещениями - последним
+            final long dictionaryOffset = nextOffset.get();
+            final byte[][] names = new byte[dictionary.size()][];
+            int dictionarySize = 0;
+            for (int id = 0; id < names.length; id++) {
+                names[id] = dictionary.name(id).getBytes(StandardCharsets.UTF_8);
+                dictionarySize += 2 + names[id].length;
+            }
+            final ByteBuffer tail = ByteBuffer.allocate(dictionarySize + groups.size() * ColumnarFormat.INDEX_ENTRY_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for (final byte[] name : names) {
+                tail.putShort((short) name.length).put(name);
+            }
+            long rows = 0;
+            for (final ColumnarFormat.RowGroup group : groups) {
+                group.encode(tail);
+                rows += group.count();
+            }
+            final long indexOffset = dictionaryOffset + dictionarySize;
+            writeFully(output, tail.flip(), dictionaryOffset);
+
+            final ColumnarFormat.Header header = new ColumnarFormat.Header(dictionary.size(), rows, groups.size(), dictionaryOffset, indexOffset);
+            writeFully(output, header.encode(), 0);
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            System.out.printf(Locale.ROOT, "Строк: %d, станций: %d, групп: %d, размер: %d -> %d байт (%.1f%%)%n",
+                    rows, dictionary.size(), groups.size(), fileSize, output.size(), 100.0 * output.size() / fileSize);
+        }
+    }
+
+    private static void writeFully(final FileChannel channel,
+                                   final ByteBuffer buffer,
+                                   final long offset) throws IOException {
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// Бинарный колоночный формат measurements (little-endian):
+//
+//   [0, 64)     заголовок: MAGIC, version, stations, rows, groups, dictionaryOffset, indexOffset
+//   [64, ...)   row groups: колонка id, затем колонка температур; значения хранятся как
+//               (value - min группы) шириной 1 или 2 байта - ширина выбирается по диапазону группы
+//   dictionary  на каждую станцию: short длина + UTF-8 байты названия, по порядку id
+//   index       на каждую группу 24 байта: offset, count, ширины колонок, min/max id и температуры
+//
+// По min/max в индексе сканер пропускает группы целиком, не читая их данных.
+final class ColumnarFormat {
+
+    static final long MAGIC = 0x004C4F4343524231L; // "1BRCCOL\0"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int INDEX_ENTRY_SIZE = 24;
+
+    static final ValueLayout.OfShort SHORT_LE = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfInt INT_LE = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    static final ValueLayout.OfLong LONG_LE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    record Header(int stations,
+                  long rows,
+                  int groups,
+                  long dictionaryOffset,
+                  long indexOffset) {
+
+        static Header read(final MemorySegment file) {
+            if (file.byteSize() < HEADER_SIZE || file.get(LONG_LE, 0) != MAGIC) {
+                throw new IllegalArgumentException("Не колоночный файл measurements");
+            }
+            final int version = file.get(INT_LE, 8);
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Неизвестная версия формата: " + version);
+            }
+            return new Header(file.get(INT_LE, 12), file.get(LONG_LE, 16), file.get(INT_LE, 24),
+                    file.get(LONG_LE, 32), file.get(LONG_LE, 40));
+        }
+
+        ByteBuffer encode() {
+            final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putLong(MAGIC).putInt(VERSION).putInt(stations).putLong(rows).putInt(groups).putInt(0)
+                    .putLong(dictionaryOffset).putLong(indexOffset);
+            return buffer.clear();
+        }
+    }
+
+    record RowGroup(long offset,
+                    int count,
+                    int idWidth,
+                    int tenthsWidth,
+                    int minId,
+                    int maxId,
+                    int minTenths,
+                    int maxTenths) {
+
+        long tenthsOffset() {
+            return offset + (long) count * idWidth;
+        }
+
+        long dataSize() {
+            return (long) count * (idWidth + tenthsWidth);
+        }
+
+        void encode(final ByteBuffer buffer) {
+            buffer.putLong(offset).putInt(count).put((byte) idWidth).put((byte) tenthsWidth)
+                    .putShort((short) minId).putShort((short) maxId)
+                    .putShort((short) minTenths).putShort((short) maxTenths)
+                    .putShort((short) 0);
+        }
+
+        static RowGroup read(final MemorySegment file,
+                             final long position) {
+            return new RowGroup(file.get(LONG_LE, position), file.get(INT_LE, position + 8),
+                    file.get(ValueLayout.JAVA_BYTE, position + 12), file.get(ValueLayout.JAVA_BYTE, position + 13),
+                    file.get(SHORT_LE, position + 14) & 0xFFFF, file.get(SHORT_LE, position + 16) & 0xFFFF,
+                    file.get(SHORT_LE, position + 18), file.get(SHORT_LE, position + 20));
+        }
+    }
+
+    private ColumnarFormat() {
+    }
+
+    // Ширина колонки: 1 байт, если диапазон группы помещается в него, иначе 2
+    static int widthOf(final int min,
+                       final int max) {
+        return max - min < 256 ? 1 : 2;
+    }
+
+    static String[] readDictionary(final MemorySegment file,
+                                   final Header header) {
+        final String[] names = new String[header.stations()];
+        long pos = header.dictionaryOffset();
+        for (int id = 0; id < names.length; id++) {
+            final int length = file.get(SHORT_LE, pos) & 0xFFFF;
+            final byte[] bytes = new byte[length];
+            MemorySegment.copy(file, ValueLayout.JAVA_BYTE, pos + 2, bytes, 0, length);
+            names[id] = new String(bytes, StandardCharsets.UTF_8);
+            pos += 2 + length;
+        }
+        return names;
+    }
+
+    static RowGroup[] readIndex(final MemorySegment file,
+                                final Header header) {
+        final RowGroup[] groups = new RowGroup[header.groups()];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = RowGroup.read(file, header.indexOffset() + (long) i * INDEX_ENTRY_SIZE);
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,171 @@
+package org.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Агрегация из колоночного файла ColumnarConverter: разбора текста нет, на строку читается 2-4 байта.
+// Группа распаковывается в int[] колонки тугими циклами по ширине, затем складывается в StationStats.
+// Потоки берут группы по одной через общий счётчик.
+//
+// Заголовки групп позволяют не читать данные:
+// -Dstations=A,B или -Dprefix=St - группа пропускается, если в её диапазоне id нет выбранных станций;
+// -Dtemp.min=-5.0 / -Dtemp.max=30.0 - учитываются только замеры в диапазоне, группа пропускается,
+// если её min/max целиком вне него. Группы целиком внутри условий проверок по строкам не получают.
+public class ColumnarSolution {
+
+    // Условия, разрешённые в id станций и десятые доли; null/границы - без ограничения
+    record Selection(boolean[] stations, int[] selectedBefore, int minTenths, int maxTenths) {
+
+        // Есть ли в [minId, maxId] выбранные станции; selectedBefore - префиксные суммы по id
+        boolean anyStation(final int minId,
+                           final int maxId) {
+            return stations == null || selectedBefore[maxId + 1] - selectedBefore[minId] > 0;
+        }
+
+        boolean allStations(final int minId,
+                            final int maxId) {
+            return stations == null || selectedBefore[maxId + 1] - selectedBefore[minId] == maxId - minId + 1;
+        }
+    }
+
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.col"));
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+
+            final MemorySegment fileSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            final ColumnarFormat.Header header = ColumnarFormat.Header.read(fileSegment);
+            final String[] names = ColumnarFormat.readDictionary(fileSegment, header);
+            final ColumnarFormat.RowGroup[] groups = ColumnarFormat.readIndex(fileSegment, header);
+
+            final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+            final StationFilter filter = StationFilter.fromProperties();
+            final Selection selection = selection(names, filter);
+            System.out.println("Количество потоков: " + numThreads + ", групп: " + groups.length
+                    + (filter != null ? ", фильтр: " + filter : "")
+                    + (System.getProperty("temp.min") != null || System.getProperty("temp.max") != null
+                    ? ", температура: [" + selection.minTenths() / 10.0 + ", " + selection.maxTenths() / 10.0 + "]" : ""));
+
+            final AtomicInteger nextGroup = new AtomicInteger();
+            final AtomicInteger skipped = new AtomicInteger();
+            final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            final List<Future<StationStats>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                futures.add(executor.submit(() -> {
+                    final StationStats stats = new StationStats(Math.max(1, header.stations()));
+                    int[] ids = new int[0];
+                    int[] tenths = new int[0];
+                    int index;
+                    while ((index = nextGroup.getAndIncrement()) < groups.length) {
+                        final ColumnarFormat.RowGroup group = groups[index];
+                        if (!selection.anyStation(group.minId(), group.maxId())
+                                || group.maxTenths() < selection.minTenths() || group.minTenths() > selection.maxTenths()) {
+                            skipped.incrementAndGet();
+                            continue;
+                        }
+                        if (ids.length < group.count()) {
+                            ids = new int[group.count()];
+                            tenths = new int[group.count()];
+                        }
+                        scanGroup(fileSegment, group, selection, ids, tenths, stats);
+                    }
+                    return stats;
+                }));
+            }
+
+            final StationStats finalResults = new StationStats(Math.max(1, header.stations()));
+            for (final Future<StationStats> future : futures) {
+                finalResults.merge(future.get(), header.stations());
+            }
+            executor.shutdown();
+
+            final TreeMap<String, String> sortedResults = new TreeMap<>();
+            for (int id = 0; id < names.length; id++) {
+                if (finalResults.count[id] > 0) {
+                    sortedResults.put(names[id], finalResults.format(id));
+                }
+            }
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            System.out.println("Групп прочитано: " + (groups.length - skipped.get()) + " из " + groups.length
+                    + ", пропущено по заголовкам: " + skipped.get());
+            System.out.println(sortedResults);
+        }
+    }
+
+    static Selection selection(final String[] names,
+                               final StationFilter filter) {
+        boolean[] stations = null;
+        int[] selectedBefore = null;
+        if (filter != null) {
+            stations = new boolean[names.length];
+            selectedBefore = new int[names.length + 1];
+            for (int id = 0; id < names.length; id++) {
+                stations[id] = filter.matches(names[id]);
+                selectedBefore[id + 1] = selectedBefore[id] + (stations[id] ? 1 : 0);
+            }
+        }
+        final String min = System.getProperty("temp.min");
+        final String max = System.getProperty("temp.max");
+        return new Selection(stations, selectedBefore,
+                min != null ? (int) Math.round(Double.parseDouble(min) * 10) : Short.MIN_VALUE,
+                max != null ? (int) Math.round(Double.parseDouble(max) * 10) : Short.MAX_VALUE);
+    }
+
+    static void scanGroup(final MemorySegment file,
+                          final ColumnarFormat.RowGroup group,
+                          final Selection selection,
+                          final int[] ids,
+                          final int[] tenths,
+                          final StationStats stats) {
+        final int count = group.count();
+        decode(file, group.offset(), group.idWidth(), group.minId(), count, ids);
+        decode(file, group.tenthsOffset(), group.tenthsWidth(), group.minTenths(), count, tenths);
+
+        final boolean allStations = selection.allStations(group.minId(), group.maxId());
+        final boolean allTenths = selection.minTenths() <= group.minTenths() && group.maxTenths() <= selection.maxTenths();
+        if (allStations && allTenths) {
+            for (int i = 0; i < count; i++) {
+                stats.add(ids[i], tenths[i]);
+            }
+            return;
+        }
+        final boolean[] stations = selection.stations();
+        for (int i = 0; i < count; i++) {
+            final int id = ids[i];
+            final int temperature = tenths[i];
+            if ((allStations || stations[id])
+                    && temperature >= selection.minTenths() && temperature <= selection.maxTenths()) {
+                stats.add(id, temperature);
+            }
+        }
+    }
+
+    // Колонка шириной 1 или 2 байта: значение = base + беззнаковое смещение
+    private static void decode(final MemorySegment file,
+                               final long offset,
+                               final int width,
+                               final int base,
+                               final int count,
+                               final int[] values) {
+        if (width == 1) {
+            for (int i = 0; i < count; i++) {
+                values[i] = base + (file.get(ValueLayout.JAVA_BYTE, offset + i) & 0xFF);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                values[i] = base + (file.get(ColumnarFormat.SHORT_LE, offset + 2L * i) & 0xFFFF);
+            }
+        }
+    }
+}
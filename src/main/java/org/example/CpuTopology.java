@@ -0,0 +1,80 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Топология CPU из /sys/devices/system/cpu: сокет и физическое ядро для каждого логического CPU.
+// Онлайн-CPU пересекаются с маской sched_getaffinity: под taskset или в контейнере с cpuset
+// процессу доступна только часть из них, а привязка к чужому CPU просто не сработает.
+final class CpuTopology {
+
+    record Cpu(int id, int socket, int core) {
+    }
+
+    private static final Path SYSFS_CPU = Path.of("/sys/devices/system/cpu");
+
+    private CpuTopology() {
+    }
+
+    // Доступные логические CPU, отсортированные по сокету, затем по ядру.
+    // skipSmt = true оставляет по одному логическому CPU на физическое ядро.
+    static List<Cpu> cpus(final boolean skipSmt) {
+        final BitSet allowed = Posix.allowedCpus();
+        final List<Cpu> cpus = new ArrayList<>();
+        for (final int id : parseList(read(SYSFS_CPU.resolve("online"), "0-" + (Runtime.getRuntime().availableProcessors() - 1)))) {
+            if (allowed != null && !allowed.get(id)) {
+                continue;
+            }
+            final Path topology = SYSFS_CPU.resolve("cpu" + id).resolve("topology");
+            final int socket = Integer.parseInt(read(topology.resolve("physical_package_id"), "0"));
+            final int core = Integer.parseInt(read(topology.resolve("core_id"), Integer.toString(id)));
+            cpus.add(new Cpu(id, socket, core));
+        }
+
+        cpus.sort(Comparator.comparingInt(Cpu::socket).thenComparingInt(Cpu::core).thenComparingInt(Cpu::id));
+
+        if (!skipSmt) {
+            return cpus;
+        }
+        final Set<Long> seenCores = new HashSet<>();
+        final List<Cpu> physical = new ArrayList<>();
+        for (final Cpu cpu : cpus) {
+            if (seenCores.add(((long) cpu.socket() << 32) | cpu.core())) {
+                physical.add(cpu);
+            }
+        }
+        return physical;
+    }
+
+    // Формат sysfs: "0-3,8,10-11"
+    static List<Integer> parseList(final String list) {
+        final List<Integer> result = new ArrayList<>();
+        for (final String part : list.trim().split(",")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            final int dash = part.indexOf('-');
+            if (dash < 0) {
+                result.add(Integer.parseInt(part));
+            } else {
+                final int from = Integer.parseInt(part.substring(0, dash));
+                final int to = Integer.parseInt(part.substring(dash + 1));
+                for (int i = from; i <= to; i++) {
+                    result.add(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String read(final Path path,
+                               final String fallback) {
+        try {
+            return Files.readString(path).trim();
+        } catch (final IOException e) {
+            return fallback;
+        }
+    }
+}
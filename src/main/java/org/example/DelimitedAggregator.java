@@ -0,0 +1,675 @@
+package org.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Агрегация произвольных файлов с разделителем по схеме: разделитель, ключевые колонки,
+// числовые колонки с фиксированной точкой (scale знаков после точки) и агрегаты по ним.
+//
+// -Ddelimiter=, -Dheader=true -Dkeys=0,1 -Dvalues=2:2:min/mean/max,3:0:sum/count
+// По умолчанию схема 1BRC: ';', ключ - колонка 0, значение - колонка 1 с одним знаком, min/mean/max,
+// вывод совпадает с остальными движками.
+//
+// Разбор строки не интерпретирует схему на каждом поле: из схемы один раз собирается цепочка
+// MethodHandle - по обработчику на колонку (пропуск, ключ, число) с уже привязанными разделителем,
+// номером ключа, слотом и scale, и завершение строки. Цепочка лежит в static final поле, поэтому
+// для JIT она константа и встраивается целиком - как написанный руками цикл под эту схему.
+// Поля ищутся словами по 8 байт (SWAR, как в StationDictionarySolution): разделитель или '\n'.
+// Строки, в которых колонок меньше, чем нужно схеме, не агрегируются, а считаются; кавычки CSV не поддерживаются.
+public class DelimitedAggregator {
+
+    private static final ValueLayout.OfLong LONG_LE =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Строки, начинающиеся ближе TAIL_PADDING к концу файла, разбираются из копии с запасом:
+    // строка длиннее этого у самого конца файла не поддерживается
+    private static final int TAIL_PADDING = 4096;
+    private static final long NEWLINE_PATTERN = 0x0A0A0A0A0A0A0A0AL;
+    private static final long DOT_PATTERN = 0x2E2E2E2E2E2E2E2EL;
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    enum Aggregate {
+        MIN, MAX, SUM, COUNT, MEAN
+    }
+
+    record Value(int column,
+                 int scale,
+                 List<Aggregate> aggregates) {
+    }
+
+    record Schema(byte delimiter,
+                  boolean header,
+                  int[] keyColumns,
+                  Value[] values) {
+
+        int columns() {
+            int max = 0;
+            for (final int column : keyColumns) {
+                max = Math.max(max, column + 1);
+            }
+            for (final Value value : values) {
+                max = Math.max(max, value.column() + 1);
+            }
+            return max;
+        }
+
+        static Schema fromProperties() {
+            final String delimiter = System.getProperty("delimiter", ";");
+            final byte delimiterByte = (byte) ("tab".equals(delimiter) ? '\t' : delimiter.charAt(0));
+            if (delimiter.length() != 1 && !"tab".equals(delimiter) || delimiterByte == '\n' || delimiterByte < 0) {
+                throw new IllegalArgumentException("Разделитель - один ASCII-символ или tab: " + delimiter);
+            }
+
+            final int[] keys = Arrays.stream(System.getProperty("keys", "0").split(","))
+                    .mapToInt(column -> Integer.parseInt(column.trim()))
+                    .toArray();
+
+            final List<Value> values = new ArrayList<>();
+            for (final String spec : System.getProperty("values", "1:1:min/mean/max").split(",")) {
+                final String[] parts = spec.trim().split(":");
+                final int scale = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+                if (scale < 0 || scale >= POW10.length) {
+                    throw new IllegalArgumentException("scale от 0 до " + (POW10.length - 1) + ": " + spec);
+                }
+                final List<Aggregate> aggregates = parts.length > 2
+                        ? Arrays.stream(parts[2].split("/")).map(a -> Aggregate.valueOf(a.trim().toUpperCase(Locale.ROOT))).toList()
+                        : List.of(Aggregate.MIN, Aggregate.MEAN, Aggregate.MAX);
+                values.add(new Value(Integer.parseInt(parts[0]), scale, aggregates));
+            }
+
+            final Set<Integer> used = new HashSet<>();
+            for (final int column : keys) {
+                if (column < 0 || !used.add(column)) {
+                    throw new IllegalArgumentException("Колонка ключа повторяется или отрицательна: " + column);
+                }
+            }
+            for (final Value value : values) {
+                if (value.column() < 0 || !used.add(value.column())) {
+                    throw new IllegalArgumentException("Колонка значения занята или отрицательна: " + value.column());
+                }
+            }
+            return new Schema(delimiterByte, Boolean.getBoolean("header"), keys, values.toArray(Value[]::new));
+        }
+
+        @Override
+        public String toString() {
+            return "delimiter='" + (delimiter == '\t' ? "\\t" : (char) delimiter) + "', keys=" + Arrays.toString(keyColumns)
+                    + ", values=" + Arrays.toString(values);
+        }
+    }
+
+    // Разобранная строка потока: хэш, границы и последнее (замаскированное) слово полей ключа, значения по слотам
+    static final class LineState {
+        final long[] keyStart;
+        final int[] keyLength;
+        final long[] keyLastWord;
+        final long[] values;
+        final Table table;
+        long hash = StationDictionary.SEED;
+        int lineEnds = 0; // сколько обработчиков строки остановилось на '\n'
+
+        LineState(final Schema schema) {
+            keyStart = new long[schema.keyColumns().length];
+            keyLength = new int[schema.keyColumns().length];
+            keyLastWord = new long[schema.keyColumns().length];
+            values = new long[schema.values().length];
+            table = new Table(schema.keyColumns().length, schema.values().length);
+        }
+    }
+
+    // Схема этого запуска и цепочка разбора строки под неё: (segment, lineStart, state) -> начало следующей строки
+    private static final class Compiled {
+        static final Schema SCHEMA = Schema.fromProperties();
+        static final MethodHandle LINE = compile(SCHEMA);
+    }
+
+    private static final MethodType FIELD_TYPE =
+            MethodType.methodType(long.class, MemorySegment.class, long.class, LineState.class);
+
+    static MethodHandle compile(final Schema schema) {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            final MethodHandle skip = lookup.findStatic(DelimitedAggregator.class, "skipField",
+                    MethodType.methodType(long.class, long.class, MemorySegment.class, long.class, LineState.class));
+            final MethodHandle key = lookup.findStatic(DelimitedAggregator.class, "keyField",
+                    MethodType.methodType(long.class, long.class, int.class, MemorySegment.class, long.class, LineState.class));
+            final MethodHandle value = lookup.findStatic(DelimitedAggregator.class, "valueField",
+                    MethodType.methodType(long.class, long.class, int.class, int.class, MemorySegment.class, long.class, LineState.class));
+            final MethodHandle endLine = lookup.findStatic(DelimitedAggregator.class, "endLine", FIELD_TYPE);
+
+            final long delimiterPattern = (schema.delimiter() & 0xFFL) * 0x0101010101010101L;
+            MethodHandle line = null;
+            for (int column = 0; column < schema.columns(); column++) {
+                MethodHandle field = MethodHandles.insertArguments(skip, 0, delimiterPattern);
+                for (int k = 0; k < schema.keyColumns().length; k++) {
+                    if (schema.keyColumns()[k] == column) {
+                        field = MethodHandles.insertArguments(key, 0, delimiterPattern, k);
+                    }
+                }
+                for (int slot = 0; slot < schema.values().length; slot++) {
+                    if (schema.values()[slot].column() == column) {
+                        field = MethodHandles.insertArguments(value, 0, delimiterPattern, slot, schema.values()[slot].scale());
+                    }
+                }
+                line = line == null ? field : andThen(line, field);
+            }
+            return andThen(line, endLine);
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // next(segment, first(segment, pos, state), state)
+    private static MethodHandle andThen(final MethodHandle first,
+                                       final MethodHandle next) {
+        final MethodHandle chained = MethodHandles.collectArguments(next, 1, first);
+        return MethodHandles.permuteArguments(chained, FIELD_TYPE, 0, 0, 1, 2, 2);
+    }
+
+    // Байты поля до разделителя или '\n', точное SWAR-сравнение с нулём (без ложных срабатываний)
+    private static long fieldEndMatch(final long word,
+                                      final long delimiterPattern) {
+        return zeroBytes(word ^ delimiterPattern) | zeroBytes(word ^ NEWLINE_PATTERN);
+    }
+
+    private static long zeroBytes(final long xor) {
+        return ~(((xor & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL) | xor | 0x7F7F7F7F7F7F7F7FL);
+    }
+
+    // Обработчики полей: начало поля -> начало следующего (байт после разделителя или '\n')
+
+    static long skipField(final long delimiterPattern,
+                          final MemorySegment segment,
+                          final long fieldStart,
+                          final LineState state) {
+        long pos = fieldStart;
+        long match = fieldEndMatch(segment.get(LONG_LE, pos), delimiterPattern);
+        while (match == 0) {
+            pos += 8;
+            match = fieldEndMatch(segment.get(LONG_LE, pos), delimiterPattern);
+        }
+        return nextField(segment, pos + (Long.numberOfTrailingZeros(match) >>> 3), state);
+    }
+
+    static long keyField(final long delimiterPattern,
+                         final int key,
+                         final MemorySegment segment,
+                         final long fieldStart,
+                         final LineState state) {
+        long pos = fieldStart;
+        long hash = state.hash;
+        long word = segment.get(LONG_LE, pos);
+        long match = fieldEndMatch(word, delimiterPattern);
+        while (match == 0) {
+            hash = StationDictionary.mix(hash, word);
+            pos += 8;
+            word = segment.get(LONG_LE, pos);
+            match = fieldEndMatch(word, delimiterPattern);
+        }
+        // В слове может быть несколько разделителей: маска - до первого
+        final long lastWord = word & ((Long.lowestOneBit(match) >>> 7) - 1);
+        final long fieldEnd = pos + (Long.numberOfTrailingZeros(match) >>> 3);
+        state.hash = StationDictionary.mix(hash, lastWord ^ fieldEnd - fieldStart);
+        state.keyStart[key] = fieldStart;
+        state.keyLength[key] = (int) (fieldEnd - fieldStart);
+        state.keyLastWord[key] = lastWord;
+        return nextField(segment, fieldEnd, state);
+    }
+
+    // Число [-]d*[.d*] в фиксированной точке со scale знаками: недостающие знаки - нули, лишние отбрасываются.
+    // Поле короче 16 байт разбирается из двух слов как одно 128-битное: знак и '.' убираются сдвигами,
+    // лишние знаки после точки - отбрасыванием старших цифр, до 8 цифр собираются тремя умножениями.
+    // Поля длиннее - побайтовый цикл
+    static long valueField(final long delimiterPattern,
+                           final int slot,
+                           final int scale,
+                           final MemorySegment segment,
+                           final long fieldStart,
+                           final LineState state) {
+        long low = segment.get(LONG_LE, fieldStart);
+        long high = 0;
+        long end = fieldEndMatch(low, delimiterPattern);
+        int fieldLength;
+        if (end != 0) {
+            fieldLength = Long.numberOfTrailingZeros(end) >>> 3;
+        } else {
+            high = segment.get(LONG_LE, fieldStart + 8);
+            end = fieldEndMatch(high, delimiterPattern);
+            if (end == 0) {
+                return slowValueField((byte) delimiterPattern, slot, scale, segment, fieldStart, state);
+            }
+            fieldLength = 8 + (Long.numberOfTrailingZeros(end) >>> 3);
+        }
+        final boolean negative = (low & 0xFF) == '-';
+        if (negative) {
+            low = (low >>> 8) | (high << 56);
+            high >>>= 8;
+        }
+        final int length = fieldLength - (negative ? 1 : 0);
+
+        // Байты поля в low и high; хвост за полем (разделитель и следующее поле) маскируется
+        final long lowMask = length >= 8 ? -1L : (1L << (length * 8)) - 1;
+        final long highMask = length > 8 ? (1L << ((length - 8) * 8)) - 1 : 0;
+        final long lowDot = zeroBytes(low ^ DOT_PATTERN) & lowMask;
+        final long highDot = zeroBytes(high ^ DOT_PATTERN) & highMask;
+        int digits = length;
+        int fraction = 0;
+        if (lowDot != 0) {
+            final int dotPos = Long.numberOfTrailingZeros(lowDot) >>> 3;
+            final long below = (1L << (dotPos * 8)) - 1;
+            low = (low & below) | (((low >>> 8) | (high << 56)) & ~below);
+            high >>>= 8;
+            digits = length - 1;
+            fraction = digits - dotPos;
+        } else if (highDot != 0) {
+            final int dotPos = Long.numberOfTrailingZeros(highDot) >>> 3;
+            final long below = (1L << (dotPos * 8)) - 1;
+            high = (high & below) | ((high >>> 8) & ~below);
+            digits = length - 1;
+            fraction = digits - 8 - dotPos;
+        }
+        // Первая цифра - в младшем байте, поэтому лишние знаки после точки - просто последние цифры
+        if (fraction > scale) {
+            digits -= fraction - scale;
+            fraction = scale;
+        }
+
+        long value = digits > 8
+                ? digitsValue(low, 8) * POW10[digits - 8] + digitsValue(high, digits - 8)
+                : digitsValue(low, digits);
+        value *= POW10[scale - fraction];
+        state.values[slot] = negative ? -value : value;
+        return nextField(segment, fieldStart + fieldLength, state);
+    }
+
+    // Значение первых digits (до 8) цифр слова; байты за ними не важны - уходят сдвигом
+    private static long digitsValue(final long word,
+                                    final int digits) {
+        if (digits == 0) {
+            return 0;
+        }
+        // Цифры - в старшие байты (первая цифра - старшая), затем попарное сложение: 10, 100, 10000
+        long value = (word & 0x0F0F0F0F0F0F0F0FL) << ((8 - digits) * 8);
+        value = (value * 2561) >>> 8;
+        value = ((value & 0x00FF00FF00FF00FFL) * 6553601) >>> 16;
+        return ((value & 0x0000FFFF0000FFFFL) * 42949672960001L) >>> 32;
+    }
+
+    private static long slowValueField(final byte delimiter,
+                                       final int slot,
+                                       final int scale,
+                                       final MemorySegment segment,
+                                       final long fieldStart,
+                                       final LineState state) {
+        long pos = fieldStart;
+        final boolean negative = segment.get(ValueLayout.JAVA_BYTE, pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        int fraction = -1;
+        byte b = segment.get(ValueLayout.JAVA_BYTE, pos);
+        while (b != delimiter && b != '\n') {
+            if (b == '.') {
+                fraction = 0;
+            } else if (fraction < scale) {
+                value = value * 10 + (b - '0');
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            }
+            b = segment.get(ValueLayout.JAVA_BYTE, ++pos);
+        }
+        value *= POW10[scale - Math.max(fraction, 0)];
+        state.values[slot] = negative ? -value : value;
+        return nextField(segment, pos, state);
+    }
+
+    // Поле, закончившееся '\n', не переходит на следующую строку: если колонок в строке меньше,
+    // чем нужно схеме, остальные обработчики видят пустые поля на том же '\n'
+    private static long nextField(final MemorySegment segment,
+                                  final long fieldEnd,
+                                  final LineState state) {
+        if (segment.get(ValueLayout.JAVA_BYTE, fieldEnd) == '\n') {
+            state.lineEnds++;
+            return fieldEnd;
+        }
+        return fieldEnd + 1;
+    }
+
+    // После последней нужной колонки: строка в таблицу, остаток строки пропускается.
+    // На '\n' может остановиться только последний обработчик, иначе строка короткая - считается и пропускается
+    static long endLine(final MemorySegment segment,
+                        final long pos,
+                        final LineState state) {
+        final int lineEnds = state.lineEnds;
+        state.lineEnds = 0;
+        if (lineEnds > 1) {
+            state.table.shortRows++;
+        } else {
+            state.table.add(segment, state);
+        }
+        state.hash = StationDictionary.SEED;
+        return lineEnds > 0 ? pos + 1 : StationDictionarySolution.skipLine(segment, pos);
+    }
+
+    // Таблица потока: ключ -> id (открытая адресация), агрегаты в массивах по id * values + slot.
+    // Поля ключа хранятся подряд в одном long[]: длина поля, затем его слова по 8 байт (последнее
+    // замаскировано) - сравнение без побайтового цикла и без лишних переходов по ссылкам
+    static final class Table {
+        private static final int INITIAL_CAPACITY = 1 << 12;
+
+        private final int keys;
+        private final int valueCount;
+        private int[] slots = new int[INITIAL_CAPACITY]; // id + 1, 0 - пусто
+        private long[] hashes = new long[INITIAL_CAPACITY / 2];
+        private int[] keyOffsets = new int[INITIAL_CAPACITY / 2];
+        private long[] keyWords = new long[INITIAL_CAPACITY * 4];
+        private int keyWordsSize = 0;
+        private long[] min;
+        private long[] max;
+        private long[] sum;
+        private long[] count = new long[INITIAL_CAPACITY / 2];
+        private int size = 0;
+        long shortRows = 0;
+
+        Table(final int keys,
+              final int valueCount) {
+            this.keys = keys;
+            this.valueCount = valueCount;
+            min = new long[INITIAL_CAPACITY / 2 * valueCount];
+            max = new long[INITIAL_CAPACITY / 2 * valueCount];
+            sum = new long[INITIAL_CAPACITY / 2 * valueCount];
+        }
+
+        void add(final MemorySegment segment,
+                 final LineState state) {
+            final long hash = state.hash;
+            int index = (int) (hash >>> 32) & (slots.length - 1);
+            int id;
+            while (true) {
+                id = slots[index] - 1;
+                if (id < 0) {
+                    id = insert(index, segment, state);
+                    break;
+                }
+                if (hashes[id] == hash && sameKey(id, segment, state)) {
+                    break;
+                }
+                index = (index + 1) & (slots.length - 1);
+            }
+
+            final int base = id * valueCount;
+            for (int slot = 0; slot < valueCount; slot++) {
+                final long value = state.values[slot];
+                min[base + slot] = Math.min(min[base + slot], value);
+                max[base + slot] = Math.max(max[base + slot], value);
+                sum[base + slot] += value;
+            }
+            count[id]++;
+        }
+
+        private boolean sameKey(final int id,
+                                final MemorySegment segment,
+                                final LineState state) {
+            final long[] words = keyWords;
+            int offset = keyOffsets[id];
+            for (int k = 0; k < keys; k++) {
+                final int length = state.keyLength[k];
+                if (words[offset] != length) {
+                    return false;
+                }
+                final int fullWords = length / 8;
+                for (int i = 0; i < fullWords; i++) {
+                    if (segment.get(LONG_LE, state.keyStart[k] + i * 8L) != words[offset + 1 + i]) {
+                        return false;
+                    }
+                }
+                if (words[offset + 1 + fullWords] != state.keyLastWord[k]) {
+                    return false;
+                }
+                offset += fullWords + 2;
+            }
+            return true;
+        }
+
+        private int insert(final int index,
+                           final MemorySegment segment,
+                           final LineState state) {
+            final int id = size++;
+            if (id == count.length) {
+                grow();
+            }
+            int required = keyWordsSize;
+            for (int k = 0; k < keys; k++) {
+                required += state.keyLength[k] / 8 + 2;
+            }
+            if (required > keyWords.length) {
+                keyWords = Arrays.copyOf(keyWords, Math.max(required, keyWords.length * 2));
+            }
+            keyOffsets[id] = keyWordsSize;
+            for (int k = 0; k < keys; k++) {
+                final int fullWords = state.keyLength[k] / 8;
+                keyWords[keyWordsSize++] = state.keyLength[k];
+                for (int i = 0; i < fullWords; i++) {
+                    keyWords[keyWordsSize++] = segment.get(LONG_LE, state.keyStart[k] + i * 8L);
+                }
+                keyWords[keyWordsSize++] = state.keyLastWord[k];
+            }
+            hashes[id] = state.hash;
+            Arrays.fill(min, id * valueCount, (id + 1) * valueCount, Long.MAX_VALUE);
+            Arrays.fill(max, id * valueCount, (id + 1) * valueCount, Long.MIN_VALUE);
+            slots[index] = id + 1;
+            if (size * 2 > slots.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        private void grow() {
+            final int capacity = count.length * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            keyOffsets = Arrays.copyOf(keyOffsets, capacity);
+            count = Arrays.copyOf(count, capacity);
+            min = Arrays.copyOf(min, capacity * valueCount);
+            max = Arrays.copyOf(max, capacity * valueCount);
+            sum = Arrays.copyOf(sum, capacity * valueCount);
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            for (int id = 0; id < size; id++) {
+                int index = (int) (hashes[id] >>> 32) & (slots.length - 1);
+                while (slots[index] != 0) {
+                    index = (index + 1) & (slots.length - 1);
+                }
+                slots[index] = id + 1;
+            }
+        }
+
+        private String keyField(final int offset) {
+            final byte[] bytes = new byte[(int) keyWords[offset]];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) (keyWords[offset + 1 + i / 8] >>> ((i % 8) * 8));
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // Слияние в общий результат по строковому ключу: {min, max, sum} по слотам и count последним
+        void mergeInto(final Map<String, long[]> results,
+                       final byte delimiter) {
+            for (int id = 0; id < size; id++) {
+                final StringBuilder key = new StringBuilder();
+                int offset = keyOffsets[id];
+                for (int k = 0; k < keys; k++) {
+                    if (k > 0) {
+                        key.append((char) delimiter);
+                    }
+                    key.append(keyField(offset));
+                    offset += (int) (keyWords[offset] / 8) + 2;
+                }
+                final long[] merged = results.computeIfAbsent(key.toString(), unused -> {
+                    final long[] initial = new long[valueCount * 3 + 1];
+                    for (int slot = 0; slot < valueCount; slot++) {
+                        initial[slot * 3] = Long.MAX_VALUE;
+                        initial[slot * 3 + 1] = Long.MIN_VALUE;
+                    }
+                    return initial;
+                });
+                for (int slot = 0; slot < valueCount; slot++) {
+                    final int i = id * valueCount + slot;
+                    merged[slot * 3] = Math.min(merged[slot * 3], min[i]);
+                    merged[slot * 3 + 1] = Math.max(merged[slot * 3 + 1], max[i]);
+                    merged[slot * 3 + 2] += sum[i];
+                }
+                merged[valueCount * 3] += count[id];
+            }
+        }
+    }
+
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+        final Schema schema = Compiled.SCHEMA;
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+
+            final long fileSize = channel.size();
+            final MemorySegment fileSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+
+            final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+            System.out.println("Количество потоков: " + numThreads + ", схема: " + schema);
+
+            final long dataStart = schema.header() ? alignToLineStart(fileSegment, 1, fileSize) : 0;
+            final long dataSize = fileSize - dataStart;
+            final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            final List<Future<Table>> futures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                final long startPos = alignToLineStart(fileSegment, dataStart + dataSize / numThreads * i, fileSize);
+                final long endPos = (i == numThreads - 1)
+                        ? fileSize
+                        : alignToLineStart(fileSegment, dataStart + dataSize / numThreads * (i + 1), fileSize);
+                futures.add(executor.submit(() -> processChunk(fileSegment, fileSize, startPos, endPos, schema)));
+            }
+
+            final Map<String, long[]> results = new HashMap<>();
+            long shortRows = 0;
+            try {
+                for (final Future<Table> future : futures) {
+                    final Table table = future.get();
+                    table.mergeInto(results, schema.delimiter());
+                    shortRows += table.shortRows;
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            final TreeMap<String, String> sortedResults = new TreeMap<>();
+            for (final Map.Entry<String, long[]> entry : results.entrySet()) {
+                sortedResults.put(entry.getKey(), format(schema, entry.getValue()));
+            }
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            if (shortRows > 0) {
+                System.out.println("Пропущено строк с недостающими колонками: " + shortRows);
+            }
+            System.out.println("Keys found: " + sortedResults.size());
+            System.out.println(sortedResults);
+        }
+    }
+
+    private static long alignToLineStart(final MemorySegment segment,
+                                         final long position,
+                                         final long fileSize) {
+        if (position == 0) {
+            return 0;
+        }
+        long pos = position - 1;
+        while (pos < fileSize && segment.get(ValueLayout.JAVA_BYTE, pos) != '\n') {
+            pos++;
+        }
+        return Math.min(pos + 1, fileSize);
+    }
+
+    private static Table processChunk(final MemorySegment segment,
+                                      final long fileSize,
+                                      final long start,
+                                      final long end,
+                                      final Schema schema) {
+        final LineState state = new LineState(schema);
+        final long safeEnd = Math.min(end, Math.max(0, fileSize - TAIL_PADDING));
+
+        long pos = start;
+        while (pos < safeEnd) {
+            pos = parseLine(segment, pos, state);
+        }
+
+        // Хвост у конца файла - из копии с нулевым запасом; последней строке без '\n' он дописывается
+        if (pos < end) {
+            int tailLength = (int) (end - pos);
+            final byte[] tail = new byte[tailLength + TAIL_PADDING];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, pos, tail, 0, tailLength);
+            if (tail[tailLength - 1] != '\n') {
+                tail[tailLength++] = '\n';
+            }
+            final MemorySegment tailSegment = MemorySegment.ofArray(tail);
+            long tailPos = 0;
+            while (tailPos < tailLength) {
+                tailPos = parseLine(tailSegment, tailPos, state);
+            }
+        }
+        return state.table;
+    }
+
+    // Обработчики не бросают проверяемых исключений, invokeExact лишь объявляет Throwable
+    private static long parseLine(final MemorySegment segment,
+                                  final long lineStart,
+                                  final LineState state) {
+        try {
+            return (long) Compiled.LINE.invokeExact(segment, lineStart, state);
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Агрегаты колонок через '/', колонки через пробел
+    private static String format(final Schema schema,
+                                 final long[] merged) {
+        final long count = merged[schema.values().length * 3];
+        final StringJoiner columns = new StringJoiner(" ");
+        for (int slot = 0; slot < schema.values().length; slot++) {
+            final Value value = schema.values()[slot];
+            final double divisor = POW10[value.scale()];
+            final String pattern = "%." + value.scale() + "f";
+            final StringJoiner aggregates = new StringJoiner("/");
+            for (final Aggregate aggregate : value.aggregates()) {
+                aggregates.add(switch (aggregate) {
+                    case MIN -> String.format(pattern, merged[slot * 3] / divisor);
+                    case MAX -> String.format(pattern, merged[slot * 3 + 1] / divisor);
+                    case SUM -> String.format(pattern, merged[slot * 3 + 2] / divisor);
+                    case COUNT -> Long.toString(count);
+                    case MEAN -> String.format(pattern, merged[slot * 3 + 2] / divisor / count);
+                });
+            }
+            columns.add(aggregates.toString());
+        }
+        return columns.toString();
+    }
+}
@@ -0,0 +1,275 @@
+package org.example;
+
+import com.sun.nio.file.ExtendedOpenOption;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+// O_DIRECT + выровненные direct-буферы: чтение мимо page cache для холодных прогонов
+public class DirectIoSolution {
+
+    static class MutableResult {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        long count = 0;
+
+        void update(final double temperature) {
+            if (temperature < min) {
+                min = temperature;
+            }
+            if (temperature > max) {
+                max = temperature;
+            }
+            sum += temperature;
+            count++;
+        }
+
+        void merge(final MutableResult other) {
+            if (other.min < this.min) {
+                this.min = other.min;
+            }
+            if (other.max > this.max) {
+                this.max = other.max;
+            }
+            this.sum += other.sum;
+            this.count += other.count;
+        }
+
+        double mean() {
+            return sum / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f/%.1f/%.1f", min, mean(), max);
+        }
+    }
+
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+
+        // O_DIRECT требует, чтобы позиция, длина чтения и адрес буфера были кратны размеру блока
+        final int blockSize = (int) Files.getFileStore(filePath).getBlockSize();
+        System.out.println("Размер блока: " + blockSize);
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ, ExtendedOpenOption.DIRECT)) {
+            final long fileSize = channel.size();
+
+            final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+            System.out.println("Количество потоков: " + numThreads);
+
+            // Границы чанков выравниваем вниз до размера блока
+            final long chunkSize = Math.max(blockSize, fileSize / numThreads / blockSize * blockSize);
+            System.out.println("chunkSize: " + (chunkSize / (1024 * 1024)) + "MB");
+
+            final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            final List<Future<Map<String, MutableResult>>> futures = new ArrayList<>();
+
+            for (int i = 0; i < numThreads; i++) {
+                final long startPos = i * chunkSize;
+                if (startPos >= fileSize) {
+                    break;
+                }
+                final long endPos = (i == numThreads - 1) ? fileSize : Math.min(fileSize, (i + 1) * chunkSize);
+
+                futures.add(executor.submit(() -> processChunk(channel, startPos, endPos, fileSize, blockSize)));
+            }
+
+            final Map<String, MutableResult> finalResults = new HashMap<>(512);
+            for (final Future<Map<String, MutableResult>> future : futures) {
+                final Map<String, MutableResult> chunkResults = future.get();
+                for (final Map.Entry<String, MutableResult> entry : chunkResults.entrySet()) {
+                    finalResults.compute(entry.getKey(), (key, existing) -> {
+                        if (existing == null) {
+                            return entry.getValue();
+                        } else {
+                            existing.merge(entry.getValue());
+                            return existing;
+                        }
+                    });
+                }
+            }
+
+            executor.shutdown();
+
+            final TreeMap<String, MutableResult> sortedResults = new TreeMap<>(finalResults);
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            System.out.println(sortedResults);
+        }
+    }
+
+    // Поток владеет строками, начало которых лежит в (start, end] (для первого чанка - с нуля).
+    // Последняя строка может заканчиваться за end - дочитываем следующие блоки.
+    private static Map<String, MutableResult> processChunk(final FileChannel channel,
+                                                           final long start,
+                                                           final long end,
+                                                           final long fileSize,
+                                                           final int blockSize) throws Exception {
+        final Map<String, MutableResult> results = new HashMap<>(512);
+
+        // Буфер потока: [блок под хвост незавершённой строки][выровненная область чтения]
+        final int READ_SIZE = 8 * 1024 * 1024; // 8 MB, кратно размеру блока
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(blockSize + READ_SIZE + blockSize)
+                .alignedSlice(blockSize);
+        final ByteBuffer readRegion = buffer.slice(blockSize, READ_SIZE);
+        final byte[] stationBytes = new byte[256];
+
+        long readPos = start;
+        int carryLen = 0;
+        boolean skipFirstLine = start > 0;
+
+        while (readPos < fileSize) {
+            readRegion.clear();
+            int bytesRead = 0;
+            while (readRegion.hasRemaining()) {
+                final int n = channel.read(readRegion, readPos + bytesRead);
+                if (n <= 0) {
+                    break;
+                }
+                bytesRead += n;
+                // Частичное чтение у конца файла: дальше читать нечего
+                if ((n % blockSize) != 0) {
+                    break;
+                }
+            }
+            if (bytesRead <= 0) {
+                break;
+            }
+
+            // Данные лежат непрерывно: хвост прошлой строки прямо перед областью чтения
+            int pos = blockSize - carryLen;
+            final int limit = blockSize + bytesRead;
+            final long bufferBase = readPos - blockSize; // абсолютная позиция байта buffer[0]
+
+            if (skipFirstLine) {
+                final int newlinePos = findByteSWAR(buffer, pos, limit, (byte) '\n');
+                if (newlinePos == -1) {
+                    readPos += bytesRead;
+                    continue;
+                }
+                pos = newlinePos + 1;
+                skipFirstLine = false;
+            }
+
+            final boolean isEof = readPos + bytesRead >= fileSize;
+            boolean done = false;
+
+            while (pos < limit) {
+                if (bufferBase + pos > end) {
+                    done = true;
+                    break;
+                }
+
+                final int semicolonPos = findByteSWAR(buffer, pos, limit, (byte) ';');
+                if (semicolonPos == -1) {
+                    break;
+                }
+
+                int newlinePos = findByteSWAR(buffer, semicolonPos + 1, limit, (byte) '\n');
+                if (newlinePos == -1) {
+                    if (!isEof) {
+                        break;
+                    }
+                    newlinePos = limit;
+                }
+
+                final int stationLen = semicolonPos - pos;
+                buffer.get(pos, stationBytes, 0, stationLen);
+                final String station = new String(stationBytes, 0, stationLen);
+                final double temperature = parseTemperatureFast(buffer, semicolonPos + 1, newlinePos);
+
+                MutableResult result = results.get(station);
+                if (result == null) {
+                    result = new MutableResult();
+                    results.put(station, result);
+                }
+                result.update(temperature);
+
+                pos = newlinePos + 1;
+            }
+
+            if (done || isEof || bufferBase + pos > end) {
+                break;
+            }
+
+            // Незавершённая строка переносится в блок перед областью чтения
+            carryLen = limit - pos;
+            if (carryLen > blockSize) {
+                throw new IllegalStateException("Строка длиннее блока: " + carryLen);
+            }
+            buffer.put(blockSize - carryLen, buffer, pos, carryLen);
+
+            readPos += bytesRead;
+        }
+
+        return results;
+    }
+
+    // SWAR поиск байта в direct-буфере (getLong читает big-endian).
+    // Точная маска без ложных срабатываний от заёма, поэтому позицию берём сразу из numberOfLeadingZeros
+    private static int findByteSWAR(final ByteBuffer buffer,
+                                    final int start,
+                                    final int end,
+                                    final byte target) {
+        int pos = start;
+        final long targetBroadcast = (target & 0xFFL) * 0x0101010101010101L;
+
+        while (pos + 8 <= end) {
+            final long xor = buffer.getLong(pos) ^ targetBroadcast;
+            final long match = ~(((xor & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL) | xor | 0x7F7F7F7F7F7F7F7FL);
+
+            if (match != 0) {
+                return pos + (Long.numberOfLeadingZeros(match) >>> 3);
+            }
+
+            pos += 8;
+        }
+
+        while (pos < end) {
+            if (buffer.get(pos) == target) return pos;
+            pos++;
+        }
+
+        return -1;
+    }
+
+    private static double parseTemperatureFast(final ByteBuffer buffer,
+                                               final int start,
+                                               final int end) {
+        boolean negative = false;
+        int pos = start;
+
+        if (pos >= end) return 0.0;
+
+        if (buffer.get(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+
+        int intPart = 0;
+        while (pos < end && buffer.get(pos) != '.') {
+            intPart = intPart * 10 + (buffer.get(pos) - '0');
+            pos++;
+        }
+
+        int fracPart = 0;
+        if (pos < end && buffer.get(pos) == '.') {
+            pos++;
+            if (pos < end && buffer.get(pos) >= '0' && buffer.get(pos) <= '9') {
+                fracPart = buffer.get(pos) - '0';
+            }
+        }
+
+        final double result = intPart + fracPart * 0.1;
+        return negative ? -result : result;
+    }
+}
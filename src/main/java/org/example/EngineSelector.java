@@ -0,0 +1,215 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+import jdk.incubator.vector.ByteVector;
+
+// Выбор движка и параметров по возможностям хоста и размеру входа.
+// Пробует ширину вектора, число CPU, лимиты cgroup (CPU и память) и размер файла,
+// выбирает движок, число потоков (и тем самым размер чанка) и запускает его в этой же JVM.
+//
+// -Dcalibrate=true прогоняет кандидатов на этом файле в отдельных JVM и сохраняет лучший вариант
+// в профиль хоста (~/.1brc/profile-<host>.properties); дальше профиль используется для больших файлов.
+public class EngineSelector {
+
+    // Меньше этого на поток - накладные расходы на пул и слияние больше выигрыша
+    private static final long MIN_CHUNK_SIZE = 16L * 1024 * 1024; // 16 MB
+    // Файлы меньше этого разбираем в одном потоке
+    private static final long SMALL_FILE_SIZE = 32L * 1024 * 1024; // 32 MB
+
+    record Host(int cpus,
+                double cgroupCpus,
+                long cgroupMemory,
+                int vectorBits) {
+
+        // Сколько потоков реально даст планировщик: квота cgroup могла быть меньше числа CPU
+        int usableCpus() {
+            return cgroupCpus > 0 ? Math.max(1, Math.min(cpus, (int) Math.ceil(cgroupCpus))) : cpus;
+        }
+    }
+
+    record Choice(String engine,
+                  int threads,
+                  String reason) {
+    }
+
+    static void main(final String[] args) throws Exception {
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+        final long fileSize = Files.size(filePath);
+        final Host host = probeHost();
+        final Path profilePath = profilePath();
+
+        System.out.println("CPU: " + host.cpus() + ", квота cgroup: " + (host.cgroupCpus() > 0 ? host.cgroupCpus() : "нет")
+                + ", лимит памяти: " + (host.cgroupMemory() > 0 ? host.cgroupMemory() / (1024 * 1024) + "MB" : "нет")
+                + ", вектор: " + host.vectorBits() + " бит, файл: " + fileSize / (1024 * 1024) + "MB");
+
+        if (Boolean.getBoolean("calibrate")) {
+            calibrate(filePath, host, profilePath);
+        }
+
+        final Choice choice = choose(fileSize, host, loadProfile(profilePath, host));
+        System.out.println("Движок: " + choice.engine() + ", потоков: " + choice.threads()
+                + ", чанк: " + fileSize / choice.threads() / (1024 * 1024) + "MB (" + choice.reason() + ")");
+
+        System.setProperty("file", filePath.toString());
+        System.setProperty("threads", Integer.toString(choice.threads()));
+        final Method main = Class.forName(EngineSelector.class.getPackageName() + "." + choice.engine())
+                .getDeclaredMethod("main", String[].class);
+        main.setAccessible(true);
+        main.invoke(null, (Object) args);
+    }
+
+    static Choice choose(final long fileSize,
+                         final Host host,
+                         final Properties profile) {
+        if (fileSize < SMALL_FILE_SIZE) {
+            // С одним потоком StationDictionarySolution разбирает маппинг прямо в вызывающем потоке:
+            // ни executor, ни пула AsynchronousFileChannel, ни слияния таблиц потоков
+            return new Choice("StationDictionarySolution", 1, "маленький файл - разбор в вызывающем потоке, без пулов");
+        }
+
+        final int threads = (int) Math.max(1, Math.min(host.usableCpus(), fileSize / MIN_CHUNK_SIZE));
+
+        // Маппинг всего файла держит его страницы в RSS, а они считаются в лимит памяти cgroup
+        if (host.cgroupMemory() > 0 && fileSize > host.cgroupMemory() / 2) {
+            return new Choice("WindowedMappingSolution", threads, "файл не помещается в лимит памяти - маппинг окнами");
+        }
+
+        if (profile != null) {
+            final int profileThreads = Math.min(threads, Integer.parseInt(profile.getProperty("threads")));
+            return new Choice(profile.getProperty("engine"), profileThreads, "профиль хоста от " + profile.getProperty("calibratedAt"));
+        }
+
+        return new Choice("MultiCursorSolution", threads, "маппинг + SWAR, по умолчанию");
+    }
+
+    // Кандидаты для калибровки: Vector API имеет смысл только при широких векторах
+    static List<String> candidates(final Host host) {
+        final List<String> candidates = new ArrayList<>(List.of("SwarSolution", "SwarAndThreadLocalMaps", "MultiCursorSolution"));
+        if (host.vectorBits() >= 256) {
+            candidates.add("VectorApiSolution");
+        }
+        return candidates;
+    }
+
+    private static void calibrate(final Path filePath,
+                                  final Host host,
+                                  final Path profilePath) throws Exception {
+        final int cpus = host.usableCpus();
+        final Set<Integer> threadCounts = new TreeSet<>(List.of(Math.max(1, cpus / 2), cpus));
+        String bestEngine = null;
+        int bestThreads = cpus;
+        long bestMs = Long.MAX_VALUE;
+
+        for (final String engine : candidates(host)) {
+            for (final int threads : threadCounts) {
+                final long[] runs = new long[3];
+                for (int rep = 0; rep < runs.length; rep++) {
+                    runs[rep] = BenchmarkHarness.runEngine(engine, filePath, threads);
+                }
+                Arrays.sort(runs);
+                final long median = BenchmarkHarness.percentile(runs, 0.5);
+                System.out.println("Калибровка " + engine + " threads=" + threads + ": " + median + "ms");
+                if (median < bestMs) {
+                    bestMs = median;
+                    bestEngine = engine;
+                    bestThreads = threads;
+                }
+            }
+        }
+
+        final Properties profile = new Properties();
+        profile.setProperty("engine", bestEngine);
+        profile.setProperty("threads", Integer.toString(bestThreads));
+        profile.setProperty("medianMs", Long.toString(bestMs));
+        profile.setProperty("cpus", Integer.toString(host.cpus()));
+        profile.setProperty("vectorBits", Integer.toString(host.vectorBits()));
+        profile.setProperty("calibratedAt", Instant.now().toString());
+        Files.createDirectories(profilePath.getParent());
+        try (Writer writer = Files.newBufferedWriter(profilePath)) {
+            profile.store(writer, "1brc calibration profile");
+        }
+        System.out.println("Профиль сохранён: " + profilePath);
+    }
+
+    // Профиль годится, только если он снят на таком же железе
+    private static Properties loadProfile(final Path profilePath,
+                                          final Host host) throws IOException {
+        if (!Files.exists(profilePath)) {
+            return null;
+        }
+        final Properties profile = new Properties();
+        try (Reader reader = Files.newBufferedReader(profilePath)) {
+            profile.load(reader);
+        }
+        if (!Integer.toString(host.cpus()).equals(profile.getProperty("cpus"))
+                || !Integer.toString(host.vectorBits()).equals(profile.getProperty("vectorBits"))) {
+            System.out.println("Профиль " + profilePath + " снят на другом железе, игнорируем");
+            return null;
+        }
+        return profile;
+    }
+
+    private static Path profilePath() throws IOException {
+        final String configured = System.getProperty("profile");
+        if (configured != null) {
+            return Path.of(configured);
+        }
+        final String host = InetAddress.getLocalHost().getHostName();
+        return Path.of(System.getProperty("user.home"), ".1brc", "profile-" + host + ".properties");
+    }
+
+    static Host probeHost() {
+        return new Host(
+                Runtime.getRuntime().availableProcessors(),
+                cgroupCpuQuota(),
+                cgroupMemoryLimit(),
+                ByteVector.SPECIES_PREFERRED.vectorBitSize()
+        );
+    }
+
+    // cgroup v2: cpu.max = "<quota> <period>" или "max <period>"; cgroup v1: cfs_quota_us / cfs_period_us
+    private static double cgroupCpuQuota() {
+        final String v2 = readFirstLine(Path.of("/sys/fs/cgroup/cpu.max"));
+        if (v2 != null) {
+            final String[] parts = v2.split(" ");
+            return parts[0].equals("max") ? -1 : Double.parseDouble(parts[0]) / Double.parseDouble(parts[1]);
+        }
+        final String quota = readFirstLine(Path.of("/sys/fs/cgroup/cpu/cpu.cfs_quota_us"));
+        final String period = readFirstLine(Path.of("/sys/fs/cgroup/cpu/cpu.cfs_period_us"));
+        if (quota != null && period != null && !quota.startsWith("-")) {
+            return Double.parseDouble(quota) / Double.parseDouble(period);
+        }
+        return -1;
+    }
+
+    // Лимит памяти в байтах или -1; в cgroup v1 "без лимита" выглядит как огромное число
+    static long cgroupMemoryLimit() {
+        final String v2 = readFirstLine(Path.of("/sys/fs/cgroup/memory.max"));
+        if (v2 != null) {
+            return v2.equals("max") ? -1 : Long.parseLong(v2);
+        }
+        final String v1 = readFirstLine(Path.of("/sys/fs/cgroup/memory/memory.limit_in_bytes"));
+        if (v1 != null) {
+            final long limit = Long.parseLong(v1);
+            return limit >= Long.MAX_VALUE / 2 ? -1 : limit;
+        }
+        return -1;
+    }
+
+    private static String readFirstLine(final Path path) {
+        try {
+            return Files.readString(path).trim();
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.example;
 
 import java.io.RandomAccessFile;
+import java.lang.foreign.MemorySegment;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
@@ -11,6 +12,13 @@ import java.util.concurrent.*;
 // Abha=Result[min=-32.4, max=69.1, sum=4.35585162000002E7, count=2421972]
 public class FileChannelSolution {
 
+    // -Dmadvise=true: MADV_SEQUENTIAL + MADV_HUGEPAGE на каждое окно маппинга,
+    // MADV_WILLNEED впереди курсора и MADV_DONTNEED позади него
+    private static final boolean MADVISE = Boolean.getBoolean("madvise");
+    // -Dpopulate=true: окно подгружается целиком сразу после map (аналог MAP_POPULATE)
+    private static final boolean POPULATE = Boolean.getBoolean("populate");
+    private static final int ADVISE_WINDOW = 32 * 1024 * 1024; // 32 MB
+
     record Result(double min,
                   double max,
                   double sum,
@@ -28,13 +36,16 @@ public class FileChannelSolution {
     static void main(String[] args) throws Exception {
         final long start = System.currentTimeMillis();
 
-        final Path filePath = Path.of("./measurements.txt");
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
         final RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "r");
         final FileChannel channel = file.getChannel();
         final long fileSize = channel.size();
 
+        final long[] faultsBefore = Posix.pageFaults();
+        System.out.println("Page faults до: minor=" + faultsBefore[0] + ", major=" + faultsBefore[1]);
+
         // Определяем количество потоков
-        final int numThreads = Runtime.getRuntime().availableProcessors();
+        final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
         System.out.println("Количество потоков: " + numThreads);
         final long chunkSize = fileSize / numThreads;
         System.out.println("chunkSize: " + (chunkSize/(1024 * 1024)) + "MB");
@@ -63,6 +74,10 @@ public class FileChannelSolution {
         channel.close();
         file.close();
 
+        final long[] faultsAfter = Posix.pageFaults();
+        System.out.println("Page faults после: minor=" + faultsAfter[0] + " (+" + (faultsAfter[0] - faultsBefore[0])
+                + "), major=" + faultsAfter[1] + " (+" + (faultsAfter[1] - faultsBefore[1]) + ")");
+
         // Сортируем результаты
         final TreeMap<String, Result> sortedResults = new TreeMap<>(finalResults);
 
@@ -90,9 +105,18 @@ public class FileChannelSolution {
 
             // Маппим кусок файла в память
             final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, currentPos, bufferSize);
+            final MemorySegment segment = MemorySegment.ofBuffer(buffer);
+
+            if (MADVISE) {
+                Posix.madvise(segment, 0, bufferSize, Posix.MADV_SEQUENTIAL);
+                Posix.madvise(segment, 0, bufferSize, Posix.MADV_HUGEPAGE);
+            }
+            if (POPULATE && Posix.madvise(segment, 0, bufferSize, Posix.MADV_POPULATE_READ) != 0) {
+                Posix.madvise(segment, 0, bufferSize, Posix.MADV_WILLNEED);
+            }
 
             // Обрабатываем буфер
-            processBuffer(buffer, results, currentPos + bufferSize >= end);
+            processBuffer(buffer, segment, results, currentPos + bufferSize >= end);
 
             currentPos += bufferSize;
         }
@@ -118,10 +142,13 @@ public class FileChannelSolution {
     }
 
     private static void processBuffer(final ByteBuffer buffer,
+                                      final MemorySegment segment,
                                       final Map<String, Result> results,
                                       final boolean isLastChunk) {
         final byte[] lineBuffer = new byte[128]; // Максимальная длина строки
         int linePos = 0;
+        int nextAdvicePos = 0;
+        int releasedPos = 0;
 
         while (buffer.hasRemaining()) {
             byte b = buffer.get();
@@ -132,6 +159,18 @@ public class FileChannelSolution {
                     processLine(lineBuffer, linePos, results);
                     linePos = 0;
                 }
+
+                final int cursor = buffer.position();
+                if (MADVISE && cursor >= nextAdvicePos) {
+                    // Подгружаем окно впереди и отпускаем пройденные страницы с отставанием на окно
+                    Posix.madvise(segment, cursor, 2L * ADVISE_WINDOW, Posix.MADV_WILLNEED);
+                    final int releaseTo = cursor - ADVISE_WINDOW;
+                    if (releaseTo > releasedPos) {
+                        Posix.release(segment, releasedPos, releaseTo - releasedPos);
+                        releasedPos = releaseTo;
+                    }
+                    nextAdvicePos = cursor + ADVISE_WINDOW;
+                }
             } else {
                 lineBuffer[linePos++] = b;
             }
@@ -0,0 +1,159 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Строгий режим: счётчики и образцы отклонённых строк одного потока.
+// Сами проверки - в StationDictionarySolution.processStrictLine, здесь только учёт и
+// медленная часть - проверка подозрительных названий (не-ASCII или управляющие байты),
+// один раз на станцию - до её вставки в общий словарь.
+final class LineValidator {
+
+    enum Reason {
+        NO_SEMICOLON("нет ';'"),
+        EMPTY_NAME("пустое название"),
+        NAME_TOO_LONG("название длиннее " + MAX_NAME_BYTES + " байт"),
+        INVALID_NAME("название не UTF-8 или с управляющими символами"),
+        BAD_TEMPERATURE("температура не [-]d?d.d");
+
+        final String description;
+
+        Reason(final String description) {
+            this.description = description;
+        }
+    }
+
+    // Отклонённая строка: смещение в файле и её текст (обрезанный, с экранированием)
+    record Sample(long offset, Reason reason, String line) {
+    }
+
+    static final int MAX_NAME_BYTES = 100; // по правилам 1BRC
+    private static final int SAMPLE_LIMIT = 20;
+    private static final int SAMPLE_BYTES = 120;
+
+    final long[] rejected = new long[Reason.values().length];
+    final List<Sample> samples = new ArrayList<>();
+
+    // UTF-8 без управляющих символов: '\n' внутри "названия" значит, что у строки нет ';'
+    static boolean isValidName(final MemorySegment segment,
+                               final long start,
+                               final int length) {
+        for (long pos = start; pos < start + length; pos++) {
+            if ((segment.get(ValueLayout.JAVA_BYTE, pos) & 0xFF) < 0x20) {
+                return false;
+            }
+        }
+        return isValidUtf8(segment, start, length);
+    }
+
+    void reject(final Reason reason,
+                final MemorySegment segment,
+                final long lineStart,
+                final long lineEnd,
+                final long fileOffset) {
+        rejected[reason.ordinal()]++;
+        if (samples.size() < SAMPLE_LIMIT) {
+            final int length = (int) Math.min(SAMPLE_BYTES, lineEnd - lineStart);
+            final byte[] bytes = new byte[length];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, lineStart, bytes, 0, length);
+            samples.add(new Sample(fileOffset, reason, escape(bytes)));
+        }
+    }
+
+    void merge(final LineValidator other) {
+        for (int i = 0; i < rejected.length; i++) {
+            rejected[i] += other.rejected[i];
+        }
+        samples.addAll(other.samples);
+        samples.sort(Comparator.comparingLong(Sample::offset));
+        if (samples.size() > SAMPLE_LIMIT) {
+            samples.subList(SAMPLE_LIMIT, samples.size()).clear();
+        }
+    }
+
+    long totalRejected() {
+        long total = 0;
+        for (final long count : rejected) {
+            total += count;
+        }
+        return total;
+    }
+
+    void print() {
+        System.out.println("Отклонено строк: " + totalRejected());
+        for (final Reason reason : Reason.values()) {
+            if (rejected[reason.ordinal()] > 0) {
+                System.out.println("  " + reason.description + ": " + rejected[reason.ordinal()]);
+            }
+        }
+        for (final Sample sample : samples) {
+            System.out.println("  @" + sample.offset() + " " + sample.reason().description + ": " + sample.line());
+        }
+    }
+
+    // Полная проверка UTF-8: без overlong-форм, суррогатов и значений больше U+10FFFF
+    static boolean isValidUtf8(final MemorySegment segment,
+                               final long start,
+                               final int length) {
+        long pos = start;
+        final long end = start + length;
+        while (pos < end) {
+            final int b0 = segment.get(ValueLayout.JAVA_BYTE, pos) & 0xFF;
+            if (b0 < 0x80) {
+                pos++;
+                continue;
+            }
+            final int extra;
+            final int min;
+            int cp;
+            if ((b0 & 0xE0) == 0xC0) {
+                extra = 1;
+                min = 0x80;
+                cp = b0 & 0x1F;
+            } else if ((b0 & 0xF0) == 0xE0) {
+                extra = 2;
+                min = 0x800;
+                cp = b0 & 0x0F;
+            } else if ((b0 & 0xF8) == 0xF0) {
+                extra = 3;
+                min = 0x10000;
+                cp = b0 & 0x07;
+            } else {
+                return false;
+            }
+            if (pos + extra >= end) {
+                return false;
+            }
+            for (int i = 1; i <= extra; i++) {
+                final int b = segment.get(ValueLayout.JAVA_BYTE, pos + i) & 0xFF;
+                if ((b & 0xC0) != 0x80) {
+                    return false;
+                }
+                cp = (cp << 6) | (b & 0x3F);
+            }
+            if (cp < min || cp > 0x10FFFF || (cp >= 0xD800 && cp <= 0xDFFF)) {
+                return false;
+            }
+            pos += extra + 1;
+        }
+        return true;
+    }
+
+    private static String escape(final byte[] bytes) {
+        final String text = new String(bytes, StandardCharsets.UTF_8);
+        final StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '\n') {
+                sb.append("\\n");
+            } else if (c < 0x20) {
+                sb.append(String.format("\\x%02x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
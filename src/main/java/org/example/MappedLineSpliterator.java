@@ -0,0 +1,224 @@
+package org.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Spliterator строк замапленного файла для обычных Stream-конвейеров:
+// StreamSupport.stream(new MappedLineSpliterator(segment), true).
+// Деление - пополам по байтам с выравниванием на начало строки, то есть O(длины строки).
+// Вместо String каждой строки выдаётся Line - вид на байты названия в самом сегменте и уже
+// разобранная температура; разбор тот же SWAR, что в StationDictionarySolution.processLine.
+//
+// Line - изменяемый объект, один на Spliterator: он действителен только внутри действия.
+// Поэтому у Spliterator нет ORDERED - сортировка или буферизация Line в конвейере бессмысленны,
+// название сохраняется через name(), а агрегация идёт по id станции (StationCollector).
+public final class MappedLineSpliterator implements Spliterator<MappedLineSpliterator.Line> {
+
+    private static final ValueLayout.OfLong LONG_LE =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Строки ближе TAIL_PADDING к концу файла разбираются из копии с запасом (чтение по 8 байт)
+    private static final int TAIL_PADDING = 128;
+    // Куски меньше MIN_SPLIT не делятся: накладные расходы задачи больше работы
+    private static final long MIN_SPLIT = 1 << 20;
+
+    // Вид на одну строку: название - байты [nameOffset, nameOffset + nameLength) сегмента segment()
+    public static final class Line {
+        private MemorySegment segment;
+        private long nameOffset;
+        private int nameLength;
+        private long lastWord;
+        private long hash;
+        private int tenths;
+
+        public MemorySegment segment() {
+            return segment;
+        }
+
+        public long nameOffset() {
+            return nameOffset;
+        }
+
+        public int nameLength() {
+            return nameLength;
+        }
+
+        // Температура в десятых долях градуса
+        public int tenths() {
+            return tenths;
+        }
+
+        public double temperature() {
+            return tenths / 10.0;
+        }
+
+        // Копия названия - единственное, что аллоцирует
+        public String name() {
+            final byte[] bytes = new byte[nameLength];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, nameOffset, bytes, 0, nameLength);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        // id в общем словаре без копирования названия: хэш и последнее слово уже посчитаны разбором
+        int stationId(final StationDictionary dictionary) {
+            return dictionary.idOf(segment, nameOffset, nameLength, lastWord, hash);
+        }
+
+        // То же для общей таблицы агрегатов
+        int slotIn(final SharedStationTable table) {
+            return table.slotOf(segment, nameOffset, nameLength, lastWord, hash);
+        }
+
+        // Разбор строки с lineStart; возвращает начало следующей. После строки нужно >= 8 байт
+        long parse(final MemorySegment lineSegment,
+                   final long lineStart) {
+            long pos = lineStart;
+            long wordHash = StationDictionary.SEED;
+            long word = lineSegment.get(LONG_LE, pos);
+            long match = StationDictionarySolution.semicolonMatch(word);
+            while (match == 0) {
+                wordHash = StationDictionary.mix(wordHash, word);
+                pos += 8;
+                word = lineSegment.get(LONG_LE, pos);
+                match = StationDictionarySolution.semicolonMatch(word);
+            }
+            // Только байты до первого ';': в том же слове может быть ';' следующей строки
+            final long last = word & ((Long.lowestOneBit(match) >>> 7) - 1);
+            final long semicolonPos = pos + (Long.numberOfTrailingZeros(match) >>> 3);
+
+            final long numberWord = lineSegment.get(LONG_LE, semicolonPos + 1);
+            final int decimalSepPos = Long.numberOfTrailingZeros(~numberWord & 0x10101000L);
+            final long signed = (~numberWord << 59) >> 63;
+            final long designMask = ~(signed & 0xFF);
+            final long digits = ((numberWord & designMask) << (28 - decimalSepPos)) & 0x0F000F0F00L;
+            final long absValue = ((digits * 0x640a0001L) >>> 32) & 0x3FF;
+
+            segment = lineSegment;
+            nameOffset = lineStart;
+            nameLength = (int) (semicolonPos - lineStart);
+            lastWord = last;
+            hash = StationDictionary.mix(wordHash, last);
+            tenths = (int) ((absValue ^ signed) - signed);
+
+            return semicolonPos + 1 + (decimalSepPos >>> 3) + 3;
+        }
+    }
+
+    private final MemorySegment file;
+    private final Line line = new Line();
+    private long pos;
+    private final long end;
+
+    // После перехода на копию хвоста: сегмент разбора и смещение копии в файле
+    private MemorySegment current;
+    private long delta;
+
+    public MappedLineSpliterator(final MemorySegment file) {
+        this(file, 0, file.byteSize());
+    }
+
+    // pos и end - начала строк (или конец файла)
+    MappedLineSpliterator(final MemorySegment file,
+                          final long pos,
+                          final long end) {
+        this.file = file;
+        this.pos = pos;
+        this.end = end;
+        this.current = file;
+    }
+
+    public static Stream<Line> stream(final MemorySegment file,
+                                      final boolean parallel) {
+        return StreamSupport.stream(new MappedLineSpliterator(file), parallel);
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super Line> action) {
+        if (pos >= end) {
+            return false;
+        }
+        advance();
+        action.accept(line);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super Line> action) {
+        while (pos < end) {
+            advance();
+            action.accept(line);
+        }
+    }
+
+    private void advance() {
+        if (current == file && pos > file.byteSize() - TAIL_PADDING) {
+            switchToTail();
+        }
+        pos = line.parse(current, pos - delta) + delta;
+    }
+
+    // Остаток куска у конца файла - в копию с нулевым запасом; последней строке без '\n' он дописывается
+    private void switchToTail() {
+        int length = (int) (end - pos);
+        final byte[] tail = new byte[length + TAIL_PADDING];
+        MemorySegment.copy(file, ValueLayout.JAVA_BYTE, pos, tail, 0, length);
+        if (tail[length - 1] != '\n') {
+            tail[length++] = '\n';
+        }
+        current = MemorySegment.ofArray(tail);
+        delta = pos;
+    }
+
+    @Override
+    public Spliterator<Line> trySplit() {
+        if (current != file || end - pos < 2 * MIN_SPLIT) {
+            return null;
+        }
+        long mid = pos + (end - pos) / 2;
+        while (file.get(ValueLayout.JAVA_BYTE, mid - 1) != '\n') {
+            mid++;
+        }
+        final MappedLineSpliterator prefix = new MappedLineSpliterator(file, pos, mid);
+        pos = mid;
+        return prefix;
+    }
+
+    // Оценка в байтах - верхняя граница числа строк, для деления этого достаточно
+    @Override
+    public long estimateSize() {
+        return end - pos;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL | IMMUTABLE;
+    }
+
+    // Пример: обычный Stream-конвейер со StationCollector
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+
+            final MemorySegment fileSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            final SortedMap<String, String> sortedResults = stream(fileSegment, true).collect(StationCollector.lines());
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            System.out.println(sortedResults);
+        }
+    }
+}
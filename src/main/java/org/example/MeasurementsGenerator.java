@@ -0,0 +1,177 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Генератор measurements.txt разной формы для бенчмарков
+// java org.example.MeasurementsGenerator <shape> <rows> <output>
+public class MeasurementsGenerator {
+
+    // Формы датасетов: число станций и длина названий
+    enum Shape {
+        DEFAULT(413, 3, 24),            // как в оригинальном 1BRC
+        FEW_STATIONS(8, 3, 12),         // почти всё попадает в кэш
+        HIGH_CARDINALITY(10_000, 3, 24), // максимум по правилам 1BRC
+        VERY_HIGH_CARDINALITY(30_000, 3, 24), // сверх правил: таблицы потоков не помещаются в L2
+        LONG_NAMES(413, 60, 99),        // длинные названия, SWAR-поиск ';' работает дольше
+        COLLISIONS(10_000, 28, 28),     // атака: у всех названий одинаковый хэш 31 * h + b
+        BIT63_COLLISIONS(2048, 100, 100); // атака на (h ^ w) * K без свёртки: чётное число слов с переключённым битом 63
+
+        final int stations;
+        final int minNameBytes;
+        final int maxNameBytes;
+
+        Shape(final int stations,
+              final int minNameBytes,
+              final int maxNameBytes) {
+            this.stations = stations;
+            this.minNameBytes = minNameBytes;
+            this.maxNameBytes = maxNameBytes;
+        }
+
+        static Shape parse(final String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private static final String[] SYLLABLES = {
+            "ab", "ha", "ber", "lin", "ko", "ra", "mos", "kva", "tok", "yo", "zü", "rich", "ló", "dz",
+            "san", "pa", "ulo", "cé", "ba", "gda", "ńsk", "ham", "burg", "kiev", "oslo", "nai", "ro", "bi"
+    };
+
+    static void main(final String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: MeasurementsGenerator <default|few-stations|high-cardinality|very-high-cardinality|long-names|collisions|bit63-collisions> <rows> <output>");
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        generate(Shape.parse(args[0]), Long.parseLong(args[1]), Path.of(args[2]), 42);
+        System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    static void generate(final Shape shape,
+                         final long rows,
+                         final Path output,
+                         final long seed) throws Exception {
+        final Random random = new Random(seed);
+        final byte[][] names = stationNames(shape, random);
+        final double[] means = new double[names.length];
+        for (int i = 0; i < means.length; i++) {
+            means[i] = random.nextDouble() * 50 - 15;
+        }
+
+        final byte[] line = new byte[128];
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output), 1 << 20)) {
+            for (long row = 0; row < rows; row++) {
+                final int station = random.nextInt(names.length);
+                final byte[] name = names[station];
+                System.arraycopy(name, 0, line, 0, name.length);
+                int pos = name.length;
+                line[pos++] = ';';
+
+                // Температура в десятых долях, [-99.9, 99.9]
+                int tenths = (int) Math.round((means[station] + random.nextGaussian() * 10) * 10);
+                tenths = Math.max(-999, Math.min(999, tenths));
+                if (tenths < 0) {
+                    line[pos++] = '-';
+                    tenths = -tenths;
+                }
+                if (tenths >= 100) {
+                    line[pos++] = (byte) ('0' + tenths / 100);
+                }
+                line[pos++] = (byte) ('0' + tenths / 10 % 10);
+                line[pos++] = '.';
+                line[pos++] = (byte) ('0' + tenths % 10);
+                line[pos++] = '\n';
+                out.write(line, 0, pos);
+            }
+        }
+    }
+
+    // Уникальные UTF-8 названия длиной [minNameBytes, maxNameBytes] байт
+    static byte[][] stationNames(final Shape shape,
+                                 final Random random) {
+        if (shape == Shape.COLLISIONS) {
+            return collidingNames(shape.stations, shape.maxNameBytes / 2);
+        }
+        if (shape == Shape.BIT63_COLLISIONS) {
+            return bit63CollidingNames(shape.stations, shape.maxNameBytes);
+        }
+        final Set<String> unique = new LinkedHashSet<>();
+        while (unique.size() < shape.stations) {
+            final int targetBytes = shape.minNameBytes + random.nextInt(shape.maxNameBytes - shape.minNameBytes + 1);
+            final StringBuilder name = new StringBuilder();
+            while (name.toString().getBytes(StandardCharsets.UTF_8).length < targetBytes) {
+                final String syllable = SYLLABLES[random.nextInt(SYLLABLES.length)];
+                if (name.toString().getBytes(StandardCharsets.UTF_8).length
+                        + syllable.getBytes(StandardCharsets.UTF_8).length > shape.maxNameBytes) {
+                    break;
+                }
+                if (!name.isEmpty() && random.nextInt(6) == 0) {
+                    name.append(' ');
+                }
+                name.append(syllable);
+            }
+            if (name.isEmpty()) {
+                continue;
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            unique.add(name.toString().strip());
+        }
+
+        final byte[][] names = new byte[unique.size()][];
+        int i = 0;
+        for (final String name : unique) {
+            names[i++] = name.getBytes(StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    // Блоки "Aa" и "BB" дают один вклад в полином 31 * h + b (65 * 31 + 97 == 66 * 31 + 66),
+    // поэтому любые их сочетания одной длины совпадают и по String.hashCode, и по байтовому хэшу
+    static byte[][] collidingNames(final int count,
+                                   final int blocks) {
+        final byte[][] names = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            final byte[] name = new byte[blocks * 2];
+            for (int block = 0; block < blocks; block++) {
+                final boolean upper = ((i >>> block) & 1) != 0;
+                name[block * 2] = (byte) (upper ? 'B' : 'A');
+                name[block * 2 + 1] = (byte) (upper ? 'B' : 'a');
+            }
+            names[i] = name;
+        }
+        return names;
+    }
+
+    // Бит 63 слова - старший бит байта 7. Разница только в нём проходит умножение на нечётное K
+    // без изменений (2^63 * K = 2^63 mod 2^64), а в следующем (h ^ w) её снимает такая же разница
+    // слова: названия, различающиеся чётным числом таких слов, совпадают по хэшу при любом SEED.
+    // Название i переключает слова по битам i и последнее полное слово по чётности i.
+    // Переключённый байт - 0x80 | буква, то есть не UTF-8: строгий режим такие строки отвергает
+    static byte[][] bit63CollidingNames(final int count,
+                                        final int nameBytes) {
+        final int words = nameBytes / 8;
+        final byte[][] names = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            final byte[] name = new byte[nameBytes];
+            for (int j = 0; j < nameBytes; j++) {
+                name[j] = (byte) ('a' + j % 26);
+            }
+            for (int word = 0; word < words - 1; word++) {
+                if (((i >>> word) & 1) != 0) {
+                    name[word * 8 + 7] |= (byte) 0x80;
+                }
+            }
+            if ((Integer.bitCount(i) & 1) != 0) {
+                name[(words - 1) * 8 + 7] |= (byte) 0x80;
+            }
+            names[i] = name;
+        }
+        return names;
+    }
+}
@@ -0,0 +1,318 @@
+package org.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Несколько независимых курсоров в одном потоке: каждый поток ведёт 2-4 курсора по своим
+// подотрезкам чанка в одном цикле, чтобы CPU перекрывал поиск в таблице и промахи кэша
+// разных строк (instruction-level parallelism). Таблица станций у потока одна на все курсоры.
+public class MultiCursorSolution {
+
+    private static final ValueLayout.OfLong LONG_LE =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Самая длинная строка: 100 байт названия + ';' + "-99.9" + '\n' = 107 байт.
+    // Строки, начинающиеся дальше чем за TAIL_PADDING до конца файла, разбираются из копии с запасом,
+    // чтобы чтение по 8 байт не вышло за маппинг
+    private static final int TAIL_PADDING = 128;
+    private static final int MAX_CURSORS = 4;
+
+    static class Station {
+        final long[] words; // название по 8 байт, последнее слово замаскировано
+        final int length;
+        final String name;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long sum = 0;
+        int count = 0;
+
+        Station(final long[] words,
+                final int length,
+                final String name) {
+            this.words = words;
+            this.length = length;
+            this.name = name;
+        }
+
+        void merge(final Station other) {
+            if (other.min < this.min) {
+                this.min = other.min;
+            }
+            if (other.max > this.max) {
+                this.max = other.max;
+            }
+            this.sum += other.sum;
+            this.count += other.count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f/%.1f/%.1f", min / 10.0, sum / 10.0 / count, max / 10.0);
+        }
+    }
+
+    // Open addressing, линейное пробирование; одна на поток, общая для всех его курсоров.
+    // Станций не больше MAX_STATIONS, поэтому таблица заполнена не больше чем на четверть
+    // и поиск свободной ячейки всегда заканчивается
+    static class StationTable {
+        private static final int CAPACITY = 1 << 17; // > 10 000 станций с большим запасом
+        private final Station[] slots = new Station[CAPACITY];
+        private int size = 0;
+
+        Station find(final MemorySegment segment,
+                     final long start,
+                     final int length,
+                     final long lastWord,
+                     final long hash) {
+            int index = (int) (hash ^ (hash >>> 32)) & (CAPACITY - 1);
+            while (true) {
+                final Station station = slots[index];
+                if (station == null) {
+                    return insert(segment, start, length, lastWord, index);
+                }
+                if (station.length == length && sameName(station, segment, start, lastWord)) {
+                    return station;
+                }
+                index = (index + 1) & (CAPACITY - 1);
+            }
+        }
+
+        private static boolean sameName(final Station station,
+                                        final MemorySegment segment,
+                                        final long start,
+                                        final long lastWord) {
+            final long[] words = station.words;
+            final int fullWords = words.length - 1;
+            for (int i = 0; i < fullWords; i++) {
+                if (segment.get(LONG_LE, start + i * 8L) != words[i]) {
+                    return false;
+                }
+            }
+            return words[fullWords] == lastWord;
+        }
+
+        private Station insert(final MemorySegment segment,
+                               final long start,
+                               final int length,
+                               final long lastWord,
+                               final int index) {
+            if (size == StationDictionary.MAX_STATIONS) {
+                throw new IllegalStateException("Слишком много станций: " + size);
+            }
+            final long[] words = new long[length / 8 + 1];
+            for (int i = 0; i < words.length - 1; i++) {
+                words[i] = segment.get(LONG_LE, start + i * 8L);
+            }
+            words[words.length - 1] = lastWord;
+            final byte[] nameBytes = new byte[length];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, start, nameBytes, 0, length);
+            final Station station = new Station(words, length, new String(nameBytes, StandardCharsets.UTF_8));
+            slots[index] = station;
+            size++;
+            return station;
+        }
+
+        List<Station> stations() {
+            final List<Station> stations = new ArrayList<>();
+            for (final Station station : slots) {
+                if (station != null) {
+                    stations.add(station);
+                }
+            }
+            return stations;
+        }
+    }
+
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+
+            final long fileSize = channel.size();
+            final MemorySegment fileSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+
+            final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+            final int cursors = Math.max(1, Math.min(MAX_CURSORS, Integer.getInteger("cursors", 3)));
+            System.out.println("Количество потоков: " + numThreads + ", курсоров на поток: " + cursors);
+
+            // Границы всех подотрезков сразу выровнены по началу строки
+            final int ranges = numThreads * cursors;
+            final long[] bounds = new long[ranges + 1];
+            for (int i = 0; i < ranges; i++) {
+                bounds[i] = alignToLineStart(fileSegment, fileSize / ranges * i, fileSize);
+            }
+            bounds[ranges] = fileSize;
+
+            final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            final List<Future<StationTable>> futures = new ArrayList<>();
+
+            for (int i = 0; i < numThreads; i++) {
+                final long[] cursorBounds = Arrays.copyOfRange(bounds, i * cursors, i * cursors + cursors + 1);
+                futures.add(executor.submit(() -> processChunk(fileSegment, fileSize, cursorBounds)));
+            }
+
+            final Map<String, Station> finalResults = new HashMap<>(512);
+            for (final Future<StationTable> future : futures) {
+                for (final Station station : future.get().stations()) {
+                    final Station existing = finalResults.putIfAbsent(station.name, station);
+                    if (existing != null) {
+                        existing.merge(station);
+                    }
+                }
+            }
+
+            executor.shutdown();
+
+            final TreeMap<String, Station> sortedResults = new TreeMap<>(finalResults);
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            System.out.println(sortedResults);
+        }
+    }
+
+    // Позиция первой строки, начинающейся не раньше position
+    private static long alignToLineStart(final MemorySegment segment,
+                                         final long position,
+                                         final long fileSize) {
+        if (position == 0) {
+            return 0;
+        }
+        long pos = position - 1;
+        while (pos < fileSize && segment.get(ValueLayout.JAVA_BYTE, pos) != '\n') {
+            pos++;
+        }
+        return Math.min(pos + 1, fileSize);
+    }
+
+    private static StationTable processChunk(final MemorySegment segment,
+                                             final long fileSize,
+                                             final long[] bounds) {
+        final StationTable table = new StationTable();
+        final long safeLimit = Math.max(0, fileSize - TAIL_PADDING);
+
+        // До 4 курсоров; лишние получают пустой диапазон, их ветки всегда не берутся и хорошо предсказываются
+        final long[] begin = new long[MAX_CURSORS];
+        final long[] finish = new long[MAX_CURSORS];
+        for (int c = 0; c < bounds.length - 1; c++) {
+            begin[c] = bounds[c];
+            finish[c] = bounds[c + 1];
+        }
+
+        long p0 = begin[0], p1 = begin[1], p2 = begin[2], p3 = begin[3];
+        final long e0 = Math.min(finish[0], safeLimit);
+        final long e1 = Math.min(finish[1], safeLimit);
+        final long e2 = Math.min(finish[2], safeLimit);
+        final long e3 = Math.min(finish[3], safeLimit);
+
+        // Строки разных курсоров не зависят друг от друга по данным - CPU выполняет их внахлёст
+        while (true) {
+            boolean active = false;
+            if (p0 < e0) {
+                p0 = processLine(segment, p0, table);
+                active = true;
+            }
+            if (p1 < e1) {
+                p1 = processLine(segment, p1, table);
+                active = true;
+            }
+            if (p2 < e2) {
+                p2 = processLine(segment, p2, table);
+                active = true;
+            }
+            if (p3 < e3) {
+                p3 = processLine(segment, p3, table);
+                active = true;
+            }
+            if (!active) {
+                break;
+            }
+        }
+
+        // Хвосты у самого конца файла - из копии с нулевым запасом
+        processTail(segment, Math.max(p0, begin[0]), finish[0], fileSize, table);
+        processTail(segment, Math.max(p1, begin[1]), finish[1], fileSize, table);
+        processTail(segment, Math.max(p2, begin[2]), finish[2], fileSize, table);
+        processTail(segment, Math.max(p3, begin[3]), finish[3], fileSize, table);
+
+        return table;
+    }
+
+    private static void processTail(final MemorySegment segment,
+                                    final long from,
+                                    final long to,
+                                    final long fileSize,
+                                    final StationTable table) {
+        if (from >= to) {
+            return;
+        }
+        final byte[] tail = new byte[(int) (fileSize - from) + TAIL_PADDING];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, from, tail, 0, (int) (fileSize - from));
+        final MemorySegment tailSegment = MemorySegment.ofArray(tail);
+        long pos = 0;
+        while (pos < to - from) {
+            pos = processLine(tailSegment, pos, table);
+        }
+    }
+
+    // Одна строка: SWAR-поиск ';' с одновременным хэшированием, поиск в таблице, branchless-разбор температуры.
+    // Возвращает начало следующей строки
+    private static long processLine(final MemorySegment segment,
+                                    final long lineStart,
+                                    final StationTable table) {
+        long pos = lineStart;
+        long hash = StationDictionary.SEED;
+        long word = segment.get(LONG_LE, pos);
+        long match = semicolonMatch(word);
+        while (match == 0) {
+            hash = StationDictionary.mix(hash, word);
+            pos += 8;
+            word = segment.get(LONG_LE, pos);
+            match = semicolonMatch(word);
+        }
+        // Оставляем только байты до первого ';': в том же слове может быть ';' следующей строки
+        final long lastWord = word & ((Long.lowestOneBit(match) >>> 7) - 1);
+        hash = StationDictionary.mix(hash, lastWord);
+        final long semicolonPos = pos + (Long.numberOfTrailingZeros(match) >>> 3);
+        final int length = (int) (semicolonPos - lineStart);
+
+        final Station station = table.find(segment, lineStart, length, lastWord, hash);
+
+        // Разбор [-]d?d.d без ветвлений: позиция точки по биту 4 (у цифр он есть, у '.' нет)
+        final long numberWord = segment.get(LONG_LE, semicolonPos + 1);
+        final int decimalSepPos = Long.numberOfTrailingZeros(~numberWord & 0x10101000L);
+        final int shift = 28 - decimalSepPos;
+        final long signed = (~numberWord << 59) >> 63;
+        final long designMask = ~(signed & 0xFF);
+        final long digits = ((numberWord & designMask) << shift) & 0x0F000F0F00L;
+        final long absValue = ((digits * 0x640a0001L) >>> 32) & 0x3FF;
+        final int temperature = (int) ((absValue ^ signed) - signed);
+
+        if (temperature < station.min) {
+            station.min = temperature;
+        }
+        if (temperature > station.max) {
+            station.max = temperature;
+        }
+        station.sum += temperature;
+        station.count++;
+
+        return semicolonPos + 1 + (decimalSepPos >>> 3) + 3;
+    }
+
+    // Точная SWAR-маска байтов ';' (0x80 в позиции совпадения), без ложных срабатываний от заёма
+    private static long semicolonMatch(final long word) {
+        final long xor = word ^ 0x3B3B3B3B3B3B3B3BL;
+        return ~(((xor & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL) | xor | 0x7F7F7F7F7F7F7F7FL);
+    }
+}
@@ -0,0 +1,240 @@
+package org.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Шардирование по процессам на одном хосте: родитель режет файл на K кусков по границам строк
+// и запускает K дочерних JVM (ProcessBuilder). Каждая мапит только свой кусок, считает его
+// StationDictionarySolution.processChunk в своих потоках и пишет частичные агрегаты в свой слот
+// общего замапленного файла результатов (по умолчанию в /dev/shm). У каждой JVM свои safepoint'ы,
+// GC и таблица страниц - ни один из них не останавливает остальных.
+//
+// Слот фиксированной раскладки: заголовок (состояние, число станций) и записи по 128 байт -
+// длина названия, count, sum, min, max и само название словами с нулевым добиванием.
+// Родитель после завершения детей читает записи прямо из маппинга: название сразу в том виде,
+// который нужен StationDictionary.idOf, - без сериализации и без String на запись.
+//
+// -Dthreads=N - всего потоков, -Dprocesses=K (по умолчанию N) - дочерних JVM, потоков в каждой N / K.
+// -Dresults=path - файл результатов, -Dchild.opts="-Xmx64m ..." - дополнительные опции дочерних JVM.
+public class MultiProcessSolution {
+
+    private static final ValueLayout.OfLong LONG_LE =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Раскладка слота
+    private static final long DONE = 0x454E4F44_44524148L;
+    private static final int SLOT_HEADER = 64;
+    private static final int STATE = 0;
+    private static final int STATIONS = 8;
+    // Раскладка записи станции
+    private static final int RECORD_SIZE = 128;
+    private static final int NAME_LENGTH = 0;
+    private static final int COUNT = 4;
+    private static final int SUM = 8;
+    private static final int MIN = 16;
+    private static final int MAX = 18;
+    private static final int NAME = 24;
+    // 1BRC ограничивает название 100 байтами; 104 - целое число слов, последнее читается целиком,
+    // поэтому помещаются названия до 103 байт
+    private static final int NAME_CAPACITY = RECORD_SIZE - NAME;
+    private static final long SLOT_SIZE = SLOT_HEADER + (long) StationDictionary.MAX_STATIONS * RECORD_SIZE;
+
+    static void main(final String[] args) throws Exception {
+        if (System.getProperty("shard") != null) {
+            runShard();
+            return;
+        }
+
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt")).toAbsolutePath();
+        final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+        final int processes = Integer.getInteger("processes", numThreads);
+        final int threadsPerProcess = Math.max(1, numThreads / processes);
+        final Path resultsPath = resultsPath();
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+             FileChannel results = FileChannel.open(resultsPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            final long fileSize = channel.size();
+            final MemorySegment fileSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+            // Файл результатов разрежен: страницы появляются только под реально записанные станции
+            final MemorySegment resultsSegment = results.map(FileChannel.MapMode.READ_WRITE, 0, SLOT_SIZE * processes, arena);
+
+            System.out.println("Процессов: " + processes + " x потоков: " + threadsPerProcess + ", результаты: " + resultsPath);
+
+            final List<Process> children = new ArrayList<>();
+            for (int shard = 0; shard < processes; shard++) {
+                final long startPos = StationDictionarySolution.alignToLineStart(fileSegment, fileSize / processes * shard, fileSize);
+                final long endPos = (shard == processes - 1) ? fileSize : StationDictionarySolution.alignToLineStart(fileSegment, fileSize / processes * (shard + 1), fileSize);
+                children.add(startShard(filePath, resultsPath, shard, startPos, endPos, threadsPerProcess));
+            }
+
+            // Дочерний процесс пишет состояние DONE последним; после его завершения все записи
+            // в общий маппинг видны родителю (одни и те же страницы page cache)
+            for (int shard = 0; shard < processes; shard++) {
+                final int exitCode = children.get(shard).waitFor();
+                if (exitCode != 0 || resultsSegment.get(LONG_LE, SLOT_SIZE * shard + STATE) != DONE) {
+                    children.forEach(Process::destroy);
+                    throw new IllegalStateException("Шард " + shard + " завершился с кодом " + exitCode);
+                }
+            }
+
+            final StationDictionary dictionary = new StationDictionary();
+            final StationStats finalResults = new StationStats(StationDictionary.MAX_STATIONS);
+            for (int shard = 0; shard < processes; shard++) {
+                mergeSlot(resultsSegment, SLOT_SIZE * shard, dictionary, finalResults);
+            }
+
+            final TreeMap<String, String> sortedResults = new TreeMap<>();
+            for (int id = 0; id < dictionary.size(); id++) {
+                sortedResults.put(dictionary.name(id), finalResults.format(id));
+            }
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            System.out.println(sortedResults);
+        } finally {
+            if (System.getProperty("results") == null) {
+                Files.deleteIfExists(resultsPath);
+            }
+        }
+    }
+
+    // /dev/shm - файл в памяти без записи на диск; иначе обычный временный каталог
+    private static Path resultsPath() throws Exception {
+        final String results = System.getProperty("results");
+        if (results != null) {
+            return Path.of(results).toAbsolutePath();
+        }
+        final Path shm = Path.of("/dev/shm");
+        return Files.isDirectory(shm) && Files.isWritable(shm)
+                ? Files.createTempFile(shm, "1brc-results-", ".bin")
+                : Files.createTempFile("1brc-results-", ".bin");
+    }
+
+    private static Process startShard(final Path filePath,
+                                      final Path resultsPath,
+                                      final int shard,
+                                      final long startPos,
+                                      final long endPos,
+                                      final int threads) throws Exception {
+        final List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "--enable-preview",
+                "--add-modules", "jdk.incubator.vector",
+                "--enable-native-access=ALL-UNNAMED"
+        ));
+        final String childOptions = System.getProperty("child.opts", "");
+        if (!childOptions.isBlank()) {
+            command.addAll(Arrays.asList(childOptions.trim().split("\\s+")));
+        }
+        command.addAll(List.of(
+                "-Dfile=" + filePath,
+                "-Dresults=" + resultsPath,
+                "-Dshard=" + shard,
+                "-Dshard.start=" + startPos,
+                "-Dshard.end=" + endPos,
+                "-Dthreads=" + threads,
+                "-cp", System.getProperty("java.class.path"),
+                MultiProcessSolution.class.getName()
+        ));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    // Дочерняя JVM: свой кусок файла, свой словарь, результат - в слот shard
+    private static void runShard() throws Exception {
+        final Path filePath = Path.of(System.getProperty("file"));
+        final Path resultsPath = Path.of(System.getProperty("results"));
+        final int shard = Integer.getInteger("shard");
+        final long shardStart = Long.getLong("shard.start");
+        final long shardEnd = Long.getLong("shard.end");
+        final int numThreads = Integer.getInteger("threads", 1);
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+             FileChannel results = FileChannel.open(resultsPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            // Маппинг только своего куска: его конец - конец строки, для processChunk это конец "файла"
+            final long shardSize = shardEnd - shardStart;
+            final MemorySegment shardSegment = channel.map(FileChannel.MapMode.READ_ONLY, shardStart, shardSize, arena);
+            final MemorySegment slot = results.map(FileChannel.MapMode.READ_WRITE, SLOT_SIZE * shard, SLOT_SIZE, arena);
+
+            final StationDictionary dictionary = new StationDictionary();
+            final StationStats shardResults = new StationStats(StationDictionary.MAX_STATIONS);
+            if (shardSize > 0) {
+                final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+                final List<Future<StationStats>> futures = new ArrayList<>();
+                for (int i = 0; i < numThreads; i++) {
+                    final long startPos = StationDictionarySolution.alignToLineStart(shardSegment, shardSize / numThreads * i, shardSize);
+                    final long endPos = (i == numThreads - 1) ? shardSize : StationDictionarySolution.alignToLineStart(shardSegment, shardSize / numThreads * (i + 1), shardSize);
+                    futures.add(executor.submit(() -> StationDictionarySolution.processChunk(
+                            shardSegment, shardSize, startPos, endPos, dictionary, null, null)));
+                }
+                for (final Future<StationStats> future : futures) {
+                    shardResults.merge(future.get(), dictionary.size());
+                }
+                executor.shutdown();
+            }
+
+            writeSlot(slot, dictionary, shardResults);
+        }
+    }
+
+    private static void writeSlot(final MemorySegment slot,
+                                  final StationDictionary dictionary,
+                                  final StationStats stats) {
+        final int stations = dictionary.size();
+        for (int id = 0; id < stations; id++) {
+            final byte[] name = dictionary.name(id).getBytes(StandardCharsets.UTF_8);
+            if (name.length >= NAME_CAPACITY) {
+                throw new IllegalStateException("Название не помещается в запись: " + dictionary.name(id));
+            }
+            final long record = SLOT_HEADER + (long) id * RECORD_SIZE;
+            slot.set(ValueLayout.JAVA_INT_UNALIGNED, record + NAME_LENGTH, name.length);
+            slot.set(ValueLayout.JAVA_INT_UNALIGNED, record + COUNT, stats.count[id]);
+            slot.set(ValueLayout.JAVA_LONG_UNALIGNED, record + SUM, stats.sum[id]);
+            slot.set(ValueLayout.JAVA_SHORT_UNALIGNED, record + MIN, stats.min[id]);
+            slot.set(ValueLayout.JAVA_SHORT_UNALIGNED, record + MAX, stats.max[id]);
+            MemorySegment.copy(name, 0, slot, ValueLayout.JAVA_BYTE, record + NAME, name.length);
+        }
+        slot.set(ValueLayout.JAVA_INT_UNALIGNED, STATIONS, stations);
+        slot.set(LONG_LE, STATE, DONE);
+    }
+
+    // Хэш и последнее слово названия - как в processLine: байты после названия в записи нулевые
+    private static void mergeSlot(final MemorySegment results,
+                                  final long slot,
+                                  final StationDictionary dictionary,
+                                  final StationStats total) {
+        final int stations = results.get(ValueLayout.JAVA_INT_UNALIGNED, slot + STATIONS);
+        for (int i = 0; i < stations; i++) {
+            final long record = slot + SLOT_HEADER + (long) i * RECORD_SIZE;
+            final int length = results.get(ValueLayout.JAVA_INT_UNALIGNED, record + NAME_LENGTH);
+            final long nameStart = record + NAME;
+            long hash = StationDictionary.SEED;
+            final int fullWords = length >>> 3;
+            for (int w = 0; w < fullWords; w++) {
+                hash = StationDictionary.mix(hash, results.get(LONG_LE, nameStart + w * 8L));
+            }
+            final long lastWord = results.get(LONG_LE, nameStart + fullWords * 8L);
+            hash = StationDictionary.mix(hash, lastWord);
+
+            final int id = dictionary.idOf(results, nameStart, length, lastWord, hash);
+            total.min[id] = (short) Math.min(total.min[id], results.get(ValueLayout.JAVA_SHORT_UNALIGNED, record + MIN));
+            total.max[id] = (short) Math.max(total.max[id], results.get(ValueLayout.JAVA_SHORT_UNALIGNED, record + MAX));
+            total.sum[id] += results.get(ValueLayout.JAVA_LONG_UNALIGNED, record + SUM);
+            total.count[id] += results.get(ValueLayout.JAVA_INT_UNALIGNED, record + COUNT);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.*;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+import static java.lang.foreign.ValueLayout.*;
+
+// Тонкая обёртка над libc через Foreign Function & Memory API (только Linux)
+final class Posix {
+
+    static final int MADV_SEQUENTIAL = 2;
+    static final int MADV_WILLNEED = 3;
+    static final int MADV_DONTNEED = 4;
+    static final int MADV_HUGEPAGE = 14;
+    static final int MADV_POPULATE_READ = 22; // Linux 5.14+, аналог MAP_POPULATE для уже созданного маппинга
+
+    private static final int RUSAGE_SELF = 0;
+    private static final long RUSAGE_SIZE = 144;
+    private static final long RU_MINFLT_OFFSET = 64;
+    private static final long RU_MAJFLT_OFFSET = 72;
+    private static final long RU_MAXRSS_OFFSET = 32;
+
+    private static final Linker LINKER = Linker.nativeLinker();
+
+    private static final MethodHandle MADVISE = downcall("madvise",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG, JAVA_INT));
+    private static final MethodHandle GETRUSAGE = downcall("getrusage",
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS));
+    private static final MethodHandle GETPAGESIZE = downcall("getpagesize",
+            FunctionDescriptor.of(JAVA_INT));
+    private static final MethodHandle SCHED_SETAFFINITY = downcall("sched_setaffinity",
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_LONG, ADDRESS));
+    private static final MethodHandle SCHED_GETAFFINITY = downcall("sched_getaffinity",
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_LONG, ADDRESS));
+
+    private static final long CPU_SET_SIZE = 128; // cpu_set_t на 1024 CPU
+
+    static final long PAGE_SIZE = pageSize();
+
+    private Posix() {
+    }
+
+    private static MethodHandle downcall(final String name,
+                                         final FunctionDescriptor descriptor) {
+        final MemorySegment symbol = LINKER.defaultLookup().find(name)
+                .orElseThrow(() -> new UnsupportedOperationException("libc: нет символа " + name));
+        return LINKER.downcallHandle(symbol, descriptor);
+    }
+
+    private static long pageSize() {
+        try {
+            return (int) GETPAGESIZE.invokeExact();
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // madvise на диапазон [offset, offset + length) сегмента.
+    // Начало выравниваем вниз до страницы: маппинг FileChannel всегда начинается с границы страницы.
+    // Возвращает 0 при успехе и -1 при ошибке (например, MADV_HUGEPAGE без THP).
+    static int madvise(final MemorySegment segment,
+                       final long offset,
+                       final long length,
+                       final int advice) {
+        final long from = Math.max(0, Math.min(offset, segment.byteSize()));
+        final long to = Math.max(from, Math.min(offset + length, segment.byteSize()));
+        if (to == from) {
+            return 0;
+        }
+        final long address = segment.address() + from;
+        final long alignedAddress = address & -PAGE_SIZE;
+        try {
+            return (int) MADVISE.invokeExact(MemorySegment.ofAddress(alignedAddress),
+                    to - from + (address - alignedAddress),
+                    advice);
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // MADV_DONTNEED только по страницам, целиком лежащим внутри диапазона
+    static int release(final MemorySegment segment,
+                       final long offset,
+                       final long length) {
+        final long from = Math.max(0, offset);
+        final long to = Math.min(offset + length, segment.byteSize());
+        final long base = segment.address();
+        final long alignedFrom = (base + from + PAGE_SIZE - 1) & -PAGE_SIZE;
+        final long alignedTo = (base + to) & -PAGE_SIZE;
+        if (alignedTo <= alignedFrom) {
+            return 0;
+        }
+        try {
+            return (int) MADVISE.invokeExact(MemorySegment.ofAddress(alignedFrom),
+                    alignedTo - alignedFrom,
+                    MADV_DONTNEED);
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Привязывает текущий поток к одному CPU (pid 0 = вызывающий поток)
+    static int pinCurrentThread(final int cpu) {
+        try (Arena arena = Arena.ofConfined()) {
+            final MemorySegment mask = arena.allocate(CPU_SET_SIZE);
+            final long word = (cpu / 64) * 8L;
+            mask.set(JAVA_LONG, word, 1L << (cpu % 64));
+            return (int) SCHED_SETAFFINITY.invokeExact(0, CPU_SET_SIZE, mask);
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // CPU, на которых разрешено работать текущему потоку (taskset, cpuset cgroup); null при ошибке.
+    // Маска потока, а не процесса: звать до pinCurrentThread, иначе в ней останется один CPU
+    static BitSet allowedCpus() {
+        try (Arena arena = Arena.ofConfined()) {
+            final MemorySegment mask = arena.allocate(CPU_SET_SIZE);
+            final int rc = (int) SCHED_GETAFFINITY.invokeExact(0, CPU_SET_SIZE, mask);
+            return rc != 0 ? null : BitSet.valueOf(mask.toArray(JAVA_LONG));
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Пиковый RSS процесса в байтах: ru_maxrss из getrusage(RUSAGE_SELF), в Linux - в килобайтах
+    static long peakRss() {
+        try (Arena arena = Arena.ofConfined()) {
+            final MemorySegment usage = arena.allocate(RUSAGE_SIZE);
+            final int rc = (int) GETRUSAGE.invokeExact(RUSAGE_SELF, usage);
+            return rc != 0 ? -1 : usage.get(JAVA_LONG, RU_MAXRSS_OFFSET) * 1024;
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Текущий RSS в байтах: второе поле /proc/self/statm (в страницах); -1, если его нет
+    static long currentRss() {
+        try {
+            final String[] statm = Files.readString(Path.of("/proc/self/statm")).trim().split(" ");
+            return Long.parseLong(statm[1]) * PAGE_SIZE;
+        } catch (final IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    // {minor, major} page faults процесса из getrusage(RUSAGE_SELF)
+    static long[] pageFaults() {
+        try (Arena arena = Arena.ofConfined()) {
+            final MemorySegment usage = arena.allocate(RUSAGE_SIZE);
+            final int rc = (int) GETRUSAGE.invokeExact(RUSAGE_SELF, usage);
+            if (rc != 0) {
+                return new long[]{-1, -1};
+            }
+            return new long[]{usage.get(JAVA_LONG, RU_MINFLT_OFFSET), usage.get(JAVA_LONG, RU_MAJFLT_OFFSET)};
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package org.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Приближённая агрегация с оценкой ошибки: файл режется на мелкие чанки по границам строк, чанки
+// берутся в случайном порядке и разбираются тем же StationDictionarySolution.processChunk.
+// Каждый обработанный чанк - случайная выборка кластера строк, поэтому по частичным агрегатам
+// чанков считаются оценки: среднее (ratio-оценка sum / count) с 95% доверительным интервалом по
+// разбросу между чанками, наблюдаемые min/max и оценка числа замеров станции.
+//
+// -Derror=0.1     - остановиться, когда полуширина интервала у всех встреченных станций <= 0.1 градуса
+//                   (кроме редких - встреченных меньше чем в MIN_STATION_CHUNKS чанках: у них интервала
+//                   нет, они помечаются в выводе и в проверку не входят)
+// -Dbudget.ms=500 - остановиться по времени
+// без них чанки обрабатываются до конца и выводится точный ответ в формате остальных движков.
+// -Dchunk.mb=8 - размер чанка, -Dseed=... - порядок чанков, -Dprogress.ms=500 - период прогресса,
+// -Dprogress.full=true - в прогрессе печатать оценки всех станций.
+public class ProgressiveSolution {
+
+    private static final double Z_95 = 1.959964;
+    // Меньше чанков - разброс между ними оценивается слишком грубо, чтобы ему верить
+    private static final int MIN_CHUNKS = 16;
+    // Станция из одного чанка даёт нулевой разброс между чанками, из двух-трёх - случайно малый
+    static final int MIN_STATION_CHUNKS = 5;
+
+    // Накопленные по обработанным чанкам суммы для ratio-оценки: кроме итогов StationStats -
+    // суммы квадратов и произведений частичных sum и count по чанкам (в десятых долях)
+    static final class Estimates {
+        final StationStats total = new StationStats(StationDictionary.MAX_STATIONS);
+        final double[] sumSquares = new double[StationDictionary.MAX_STATIONS];
+        final double[] countSquares = new double[StationDictionary.MAX_STATIONS];
+        final double[] sumCounts = new double[StationDictionary.MAX_STATIONS];
+        // Число чанков, в которых станция встретилась
+        final int[] seenChunks = new int[StationDictionary.MAX_STATIONS];
+        final int totalChunks;
+        int chunks = 0;
+        long bytes = 0;
+
+        Estimates(final int totalChunks) {
+            this.totalChunks = totalChunks;
+        }
+
+        void add(final StationStats chunk,
+                 final long chunkBytes,
+                 final int stations) {
+            total.merge(chunk, stations);
+            final int n = Math.min(stations, chunk.count.length);
+            for (int id = 0; id < n; id++) {
+                final double sum = chunk.sum[id];
+                final double count = chunk.count[id];
+                sumSquares[id] += sum * sum;
+                countSquares[id] += count * count;
+                sumCounts[id] += sum * count;
+                if (count > 0) {
+                    seenChunks[id]++;
+                }
+            }
+            chunks++;
+            bytes += chunkBytes;
+        }
+
+        boolean exact() {
+            return chunks == totalChunks;
+        }
+
+        double mean(final int id) {
+            return total.sum[id] / 10.0 / total.count[id];
+        }
+
+        boolean rare(final int id) {
+            return !exact() && seenChunks[id] < MIN_STATION_CHUNKS;
+        }
+
+        // Полуширина 95% интервала среднего в градусах: дисперсия ratio-оценки по чанкам
+        // с поправкой на конечную совокупность (1 - n / N) - после всех чанков она равна нулю.
+        // У редкой станции разброс по чанкам не оценить - интервал бесконечный
+        double halfWidth(final int id) {
+            if (exact()) {
+                return 0;
+            }
+            if (chunks < 2 || rare(id)) {
+                return Double.POSITIVE_INFINITY;
+            }
+            final double ratio = (double) total.sum[id] / total.count[id];
+            final double meanCount = (double) total.count[id] / chunks;
+            final double residuals = sumSquares[id] - 2 * ratio * sumCounts[id] + ratio * ratio * countSquares[id];
+            final double variance = Math.max(0, residuals) / (chunks - 1);
+            final double ratioVariance = (1 - (double) chunks / totalChunks) * variance / (chunks * meanCount * meanCount);
+            return Z_95 * Math.sqrt(ratioVariance) / 10.0;
+        }
+
+        // Число замеров по доле обработанных байт
+        long estimatedCount(final int id,
+                            final long fileSize) {
+            return exact() ? total.count[id] : Math.round(total.count[id] * ((double) fileSize / bytes));
+        }
+
+        // По станциям, встреченным хотя бы в MIN_STATION_CHUNKS чанках; пока таких нет - бесконечность
+        double maxHalfWidth(final int stations) {
+            if (exact()) {
+                return 0;
+            }
+            double max = 0;
+            boolean any = false;
+            for (int id = 0; id < stations; id++) {
+                if (total.count[id] > 0 && !rare(id)) {
+                    max = Math.max(max, halfWidth(id));
+                    any = true;
+                }
+            }
+            return any ? max : Double.POSITIVE_INFINITY;
+        }
+
+        int rareStations(final int stations) {
+            int rare = 0;
+            for (int id = 0; id < stations; id++) {
+                if (total.count[id] > 0 && rare(id)) {
+                    rare++;
+                }
+            }
+            return rare;
+        }
+    }
+
+    record Chunk(long start, long end) {
+    }
+
+    record Done(Chunk chunk, StationStats stats) {
+    }
+
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+        final double targetError = Double.parseDouble(System.getProperty("error", "0"));
+        final long budgetMillis = Long.getLong("budget.ms", 0);
+        final long progressMillis = Long.getLong("progress.ms", 500);
+        final boolean progressFull = Boolean.getBoolean("progress.full");
+        final long chunkSize = Long.getLong("chunk.mb", 8) * 1024 * 1024;
+        final long seed = Long.getLong("seed", System.nanoTime());
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+
+            final long fileSize = channel.size();
+            final MemorySegment fileSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+
+            final List<Chunk> chunks = new ArrayList<>();
+            long chunkStart = 0;
+            while (chunkStart < fileSize) {
+                final long chunkEnd = StationDictionarySolution.alignToLineStart(fileSegment, Math.min(fileSize, chunkStart + chunkSize), fileSize);
+                chunks.add(new Chunk(chunkStart, chunkEnd));
+                chunkStart = chunkEnd;
+            }
+            Collections.shuffle(chunks, new Random(seed));
+
+            final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+            System.out.println("Количество потоков: " + numThreads + ", чанков: " + chunks.size()
+                    + (targetError > 0 ? ", цель: ±" + targetError : "")
+                    + (budgetMillis > 0 ? ", бюджет: " + budgetMillis + "ms" : ""));
+
+            final StationDictionary dictionary = new StationDictionary();
+            final AtomicInteger nextChunk = new AtomicInteger();
+            final AtomicBoolean stop = new AtomicBoolean();
+            final BlockingQueue<Done> done = new LinkedBlockingQueue<>();
+            final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                workers.add(executor.submit(() -> {
+                    int index;
+                    while (!stop.get() && (index = nextChunk.getAndIncrement()) < chunks.size()) {
+                        final Chunk chunk = chunks.get(index);
+                        done.add(new Done(chunk, StationDictionarySolution.processChunk(
+                                fileSegment, fileSize, chunk.start(), chunk.end(), dictionary, null, null)));
+                    }
+                    return null;
+                }));
+            }
+
+            // Частичные агрегаты сливаются в одном потоке по мере готовности чанков
+            final Estimates estimates = new Estimates(chunks.size());
+            long nextProgress = start + progressMillis;
+            String stopReason = null;
+            try {
+                while (!estimates.exact()) {
+                    final Done chunkDone = done.poll(10, TimeUnit.MILLISECONDS);
+                    if (chunkDone == null) {
+                        if (workers.stream().allMatch(Future::isDone)) {
+                            for (final Future<?> worker : workers) {
+                                worker.get();
+                            }
+                        }
+                    } else {
+                        estimates.add(chunkDone.stats(), chunkDone.chunk().end() - chunkDone.chunk().start(), dictionary.size());
+                    }
+                    if (estimates.exact()) {
+                        break;
+                    }
+
+                    final long now = System.currentTimeMillis();
+                    if (now >= nextProgress) {
+                        printProgress(estimates, dictionary, fileSize, now - start, progressFull);
+                        nextProgress = now + progressMillis;
+                    }
+                    if (chunkDone != null && targetError > 0 && estimates.chunks >= Math.min(MIN_CHUNKS, chunks.size())
+                            && estimates.maxHalfWidth(dictionary.size()) <= targetError) {
+                        stopReason = "достигнута точность ±" + targetError;
+                        break;
+                    }
+                    if (budgetMillis > 0 && now - start >= budgetMillis && estimates.chunks >= 2) {
+                        stopReason = "исчерпан бюджет " + budgetMillis + "ms";
+                        break;
+                    }
+                }
+            } finally {
+                // Начатые чанки дочитываются до закрытия маппинга
+                stop.set(true);
+                executor.shutdown();
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            }
+
+            final TreeMap<String, String> sortedResults = new TreeMap<>();
+            for (int id = 0; id < dictionary.size(); id++) {
+                if (estimates.total.count[id] > 0) {
+                    sortedResults.put(dictionary.name(id), estimates.exact()
+                            ? estimates.total.format(id)
+                            : estimate(estimates, id, fileSize));
+                }
+            }
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            if (estimates.exact()) {
+                System.out.println("Точный ответ: обработаны все " + estimates.totalChunks + " чанков");
+            } else {
+                System.out.printf(Locale.ROOT, "Оценка (%s): %d из %d чанков (%.1f%% байт), макс. ±%.3f, станций встречено: %d, "
+                                + "из них редких (меньше %d чанков, без интервала): %d%n",
+                        stopReason, estimates.chunks, estimates.totalChunks, 100.0 * estimates.bytes / fileSize,
+                        estimates.maxHalfWidth(dictionary.size()), sortedResults.size(),
+                        MIN_STATION_CHUNKS, estimates.rareStations(dictionary.size()));
+            }
+            System.out.println(sortedResults);
+        }
+    }
+
+    // mean±ci [min/max] ~count; у редкой станции вместо интервала - в скольких чанках она встретилась
+    private static String estimate(final Estimates estimates,
+                                   final int id,
+                                   final long fileSize) {
+        if (estimates.rare(id)) {
+            return String.format("%.1f±? [%.1f/%.1f] ~%d (чанков: %d)", estimates.mean(id),
+                    estimates.total.min[id] / 10.0, estimates.total.max[id] / 10.0, estimates.estimatedCount(id, fileSize),
+                    estimates.seenChunks[id]);
+        }
+        return String.format("%.1f±%.2f [%.1f/%.1f] ~%d", estimates.mean(id), estimates.halfWidth(id),
+                estimates.total.min[id] / 10.0, estimates.total.max[id] / 10.0, estimates.estimatedCount(id, fileSize));
+    }
+
+    private static void printProgress(final Estimates estimates,
+                                      final StationDictionary dictionary,
+                                      final long fileSize,
+                                      final long elapsedMillis,
+                                      final boolean full) {
+        System.out.printf(Locale.ROOT, "%dms: %d из %d чанков (%.1f%% байт)%s%n",
+                elapsedMillis, estimates.chunks, estimates.totalChunks, 100.0 * estimates.bytes / fileSize,
+                estimates.chunks < 2 ? "" : String.format(Locale.ROOT, ", макс. ±%.3f", estimates.maxHalfWidth(dictionary.size())));
+        if (full) {
+            final TreeMap<String, String> sorted = new TreeMap<>();
+            for (int id = 0; id < dictionary.size(); id++) {
+                if (estimates.total.count[id] > 0) {
+                    sorted.put(dictionary.name(id), estimate(estimates, id, fileSize));
+                }
+            }
+            System.out.println(sorted);
+        }
+    }
+}
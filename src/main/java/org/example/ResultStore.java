@@ -0,0 +1,281 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Результат прогона в замапленном файле: станции отсортированы по байтам UTF-8 названия,
+// записи фиксированной ширины, поиск - бинарный по индексу ключей без загрузки файла в кучу.
+//
+//   [0, 64)   заголовок: MAGIC, version, count, смещения индекса, записей и названий
+//   index     count x 8 байт: первые 8 байт названия как беззнаковое big-endian число -
+//             сравнение long даёт тот же порядок, что и сравнение байт; полное сравнение только при равенстве
+//   records   count x 32 байта: sum, count (long), смещение и длина названия, min, max (десятые доли)
+//   names     UTF-8 названия подряд
+//
+// Пишется во временный файл и переименовывается атомарно: читатели всегда видят целый прошлый прогон.
+// java -Dstore=results.store [-Dstation=Abha [-Drepeat=100000] | -Dprefix=Ab] org.example.ResultStore
+public final class ResultStore implements AutoCloseable {
+
+    private static final long MAGIC = 0x0053455243524231L; // "1BRCRES\0"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 32;
+
+    private static final ValueLayout.OfShort SHORT_LE = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfInt INT_LE = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG_LE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Температуры в градусах; mean - как в выводе движков, sum / 10 / count
+    public record Station(String name,
+                          double min,
+                          double mean,
+                          double max,
+                          long count) {
+
+        @Override
+        public String toString() {
+            return String.format("%.1f/%.1f/%.1f", min, mean, max);
+        }
+    }
+
+    private final Arena arena;
+    private final MemorySegment file;
+    private final int count;
+    private final long indexOffset;
+    private final long recordsOffset;
+    private final long namesOffset;
+
+    private ResultStore(final Arena arena,
+                        final MemorySegment file) {
+        if (file.byteSize() < HEADER_SIZE || file.get(LONG_LE, 0) != MAGIC || file.get(INT_LE, 8) != VERSION) {
+            // Арену закрывает open(): он её создал
+            throw new IllegalArgumentException("Не файл результатов");
+        }
+        this.arena = arena;
+        this.file = file;
+        this.count = file.get(INT_LE, 12);
+        this.indexOffset = file.get(LONG_LE, 16);
+        this.recordsOffset = file.get(LONG_LE, 24);
+        this.namesOffset = file.get(LONG_LE, 32);
+    }
+
+    public static ResultStore open(final Path path) throws IOException {
+        final Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ResultStore(arena, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena));
+        } catch (final IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // O(log n): бинарный поиск по индексу ключей
+    public Optional<Station> get(final String name) {
+        final byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        final int index = lowerBound(key);
+        return index < count && compare(index, key, keyPrefix(key)) == 0 ? Optional.of(station(index)) : Optional.empty();
+    }
+
+    // Станции с названием, начинающимся с prefix, по порядку; записи читаются лениво
+    public Stream<Station> prefix(final String prefix) {
+        final byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        final int from = lowerBound(key);
+        int to = from;
+        while (to < count && startsWith(to, key)) {
+            to++;
+        }
+        return IntStream.range(from, to).mapToObj(this::station);
+    }
+
+    // Все станции по порядку; записи читаются лениво
+    public Stream<Station> stream() {
+        return IntStream.range(0, count).mapToObj(this::station);
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private Station station(final int index) {
+        final long record = recordsOffset + (long) index * RECORD_SIZE;
+        final long sum = file.get(LONG_LE, record);
+        final long stationCount = file.get(LONG_LE, record + 8);
+        return new Station(name(index), file.get(SHORT_LE, record + 22) / 10.0, sum / 10.0 / stationCount,
+                file.get(SHORT_LE, record + 24) / 10.0, stationCount);
+    }
+
+    private String name(final int index) {
+        final long record = recordsOffset + (long) index * RECORD_SIZE;
+        final byte[] bytes = new byte[nameLength(record)];
+        MemorySegment.copy(file, ValueLayout.JAVA_BYTE, nameStart(record), bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long nameStart(final long record) {
+        return namesOffset + file.get(INT_LE, record + 16);
+    }
+
+    private int nameLength(final long record) {
+        return file.get(SHORT_LE, record + 20) & 0xFFFF;
+    }
+
+    // Первая запись, не меньшая key
+    private int lowerBound(final byte[] key) {
+        final long prefix = keyPrefix(key);
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (compare(mid, key, prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Порядок - беззнаковое сравнение байт, затем длина
+    private int compare(final int index,
+                        final byte[] key,
+                        final long prefix) {
+        final int byPrefix = Long.compareUnsigned(file.get(LONG_LE, indexOffset + (long) index * 8), prefix);
+        if (byPrefix != 0) {
+            return byPrefix;
+        }
+        final long record = recordsOffset + (long) index * RECORD_SIZE;
+        final long start = nameStart(record);
+        final int length = nameLength(record);
+        final int common = Math.min(length, key.length);
+        for (int i = 8; i < common; i++) {
+            final int diff = (file.get(ValueLayout.JAVA_BYTE, start + i) & 0xFF) - (key[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private boolean startsWith(final int index,
+                               final byte[] prefix) {
+        final long record = recordsOffset + (long) index * RECORD_SIZE;
+        if (nameLength(record) < prefix.length) {
+            return false;
+        }
+        final long start = nameStart(record);
+        for (int i = 0; i < prefix.length; i++) {
+            if (file.get(ValueLayout.JAVA_BYTE, start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long keyPrefix(final byte[] name) {
+        long prefix = 0;
+        for (int i = 0; i < 8; i++) {
+            prefix = (prefix << 8) | (i < name.length ? name[i] & 0xFF : 0);
+        }
+        return prefix;
+    }
+
+    // Станции с include(id) и хотя бы одним замером. Несколько id с одним названием сливаются
+    // в одну запись: бинарный поиск по повторяющимся ключам нашёл бы любую из них
+    static void write(final Path path,
+                      final int size,
+                      final IntFunction<String> name,
+                      final IntPredicate include,
+                      final StationStats stats) throws IOException {
+        final TreeMap<byte[], Integer> merged = new TreeMap<>(Arrays::compareUnsigned);
+        final StationStats unique = new StationStats(size);
+        for (int id = 0; id < size; id++) {
+            if (stats.count[id] > 0 && include.test(id)) {
+                final int target = merged.computeIfAbsent(name.apply(id).getBytes(StandardCharsets.UTF_8), key -> merged.size());
+                unique.sum[target] += stats.sum[id];
+                unique.count[target] += stats.count[id];
+                unique.min[target] = (short) Math.min(unique.min[target], stats.min[id]);
+                unique.max[target] = (short) Math.max(unique.max[target], stats.max[id]);
+            }
+        }
+
+        final int count = merged.size();
+        final long indexOffset = HEADER_SIZE;
+        final long recordsOffset = indexOffset + 8L * count;
+        final long namesOffset = recordsOffset + (long) RECORD_SIZE * count;
+        final int namesSize = merged.keySet().stream().mapToInt(bytes -> bytes.length).sum();
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) (namesOffset + namesSize)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(MAGIC).putInt(VERSION).putInt(count)
+                .putLong(indexOffset).putLong(recordsOffset).putLong(namesOffset);
+        buffer.position((int) indexOffset);
+        for (final byte[] bytes : merged.keySet()) {
+            buffer.putLong(keyPrefix(bytes));
+        }
+        int nameOffset = 0;
+        for (final Map.Entry<byte[], Integer> entry : merged.entrySet()) {
+            final int id = entry.getValue();
+            buffer.putLong(unique.sum[id]).putLong(unique.count[id])
+                    .putInt(nameOffset).putShort((short) entry.getKey().length)
+                    .putShort(unique.min[id]).putShort(unique.max[id])
+                    .putShort((short) 0).putInt(0);
+            nameOffset += entry.getKey().length;
+        }
+        for (final byte[] bytes : merged.keySet()) {
+            buffer.put(bytes);
+        }
+
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, buffer.array());
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static void main(final String[] args) throws Exception {
+        final Path path = Path.of(System.getProperty("store", "./results.store"));
+        final String station = System.getProperty("station");
+        final String prefix = System.getProperty("prefix");
+
+        try (ResultStore store = open(path)) {
+            final long start = System.nanoTime();
+            final List<Station> found = station != null
+                    ? store.get(station).stream().toList()
+                    : (prefix != null ? store.prefix(prefix) : store.stream()).toList();
+            final long elapsedMicros = (System.nanoTime() - start) / 1000;
+
+            for (final Station result : found) {
+                System.out.println(result.name() + "=" + result + " (" + result.count() + " замеров)");
+            }
+            System.out.println("Найдено: " + found.size() + " из " + store.size() + " за " + elapsedMicros + "µs");
+
+            // -Drepeat=N - средняя задержка прогретого поиска станции
+            final int repeat = Integer.getInteger("repeat", 0);
+            if (station != null && repeat > 0) {
+                final long repeatStart = System.nanoTime();
+                long hits = 0;
+                for (int i = 0; i < repeat; i++) {
+                    hits += store.get(station).isPresent() ? 1 : 0;
+                }
+                System.out.println("Поиск: " + (System.nanoTime() - repeatStart) / repeat + "ns в среднем по " + hits + " повторам");
+            }
+        }
+    }
+}
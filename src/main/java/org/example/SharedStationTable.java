@@ -0,0 +1,190 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Одна таблица станций и агрегатов на все потоки - без таблиц потоков и без фазы слияния.
+// Открытая адресация: слот захватывается CAS хэша из 0, захвативший поток копирует название
+// и публикует его через setRelease; остальные, увидев тот же хэш, ждут публикации (это доли
+// микросекунды и только при первой встрече станции). Агрегаты слота - атомарные getAndAdd для
+// sum/count и CAS min/max, причём CAS делается только если значение действительно новый экстремум.
+//
+// На популярной станции все потоки бьются за одну кэш-линию - отсюда -Dstripes: у слота stripes
+// копий агрегатов, поток пишет в свою (номер потока % stripes), и копии складываются при выводе.
+// Копии лежат stripe-major - целая таблица агрегатов на копию, (stripe * SLOTS + slot) * STRIDE:
+// копии одного слота в разных кэш-линиях, и разные копии не делят линию даже на соседних слотах.
+// При stripes = числу потоков конфликтов нет, но таблица агрегатов растёт во столько же раз.
+//
+// Цепочка проб ограничена MAX_PROBE, как в StationDictionary: станции за этим пределом получают слот
+// из отдельного хвоста [CAPACITY, SLOTS) через ConcurrentHashMap по названию.
+final class SharedStationTable {
+
+    private static final int CAPACITY_BITS = 16;
+    private static final int CAPACITY = 1 << CAPACITY_BITS;
+    static final int MAX_STATIONS = CAPACITY / 2; // заполнение не выше 50%
+    private static final int MAX_PROBE = 64;
+    // Слоты хэш-таблицы и за ними слоты overflow - их не больше, чем станций
+    private static final int SLOTS = CAPACITY + MAX_STATIONS;
+
+    // Агрегаты слота: 4 long = 32 байта, две станции одной копии на кэш-линию
+    private static final int STRIDE = 4;
+    private static final int SUM = 0;
+    private static final int COUNT = 1;
+    private static final int MIN = 2;
+    private static final int MAX = 3;
+
+    private static final ValueLayout.OfLong LONG_LE =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ENTRIES = MethodHandles.arrayElementVarHandle(Entry[].class);
+
+    // Название словами по 8 байт (последнее замаскировано), как в StationDictionary.Entry
+    private record Entry(long[] words, int length, String name) {
+    }
+
+    private final long[] hashes = new long[CAPACITY];
+    private final Entry[] entries = new Entry[SLOTS];
+    private final long[] stats;
+    private final int stripes;
+    private final AtomicInteger size = new AtomicInteger();
+    private final ConcurrentHashMap<String, Integer> overflow = new ConcurrentHashMap<>();
+    private final AtomicInteger overflowSlots = new AtomicInteger();
+
+    SharedStationTable(final int stripes) {
+        this.stripes = stripes;
+        this.stats = new long[SLOTS * stripes * STRIDE];
+    }
+
+    // Слот станции, название которой лежит в segment[start, start + length); аргументы - как у StationDictionary.idOf
+    int slotOf(final MemorySegment segment,
+               final long start,
+               final int length,
+               final long lastWord,
+               final long hash) {
+        final long key = hash | 1; // 0 - пустой слот
+        int slot = (int) (hash >>> (64 - CAPACITY_BITS));
+        for (int probe = 0; probe < MAX_PROBE; probe++) {
+            long current = (long) LONGS.getAcquire(hashes, slot);
+            if (current == 0) {
+                if (LONGS.compareAndSet(hashes, slot, 0L, key)) {
+                    publish(slot, segment, start, length, lastWord);
+                    return slot;
+                }
+                current = (long) LONGS.getAcquire(hashes, slot);
+            }
+            if (current == key) {
+                Entry entry;
+                while ((entry = (Entry) ENTRIES.getAcquire(entries, slot)) == null) {
+                    Thread.onSpinWait();
+                }
+                if (entry.length() == length && sameName(entry, segment, start, lastWord)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & (CAPACITY - 1);
+        }
+        final byte[] nameBytes = new byte[length];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, start, nameBytes, 0, length);
+        final String name = new String(nameBytes, StandardCharsets.UTF_8);
+        final Integer existing = overflow.get(name);
+        return existing != null ? existing : overflow.computeIfAbsent(name, absent -> {
+            final int overflowSlot = CAPACITY + overflowSlots.getAndIncrement();
+            if (overflowSlot >= SLOTS) {
+                throw new IllegalStateException("Слишком много станций: " + size.get());
+            }
+            publish(overflowSlot, segment, start, length, lastWord);
+            return overflowSlot;
+        });
+    }
+
+    // Начальные min/max пишутся до публикации названия: кто увидел название, видит и их
+    private void publish(final int slot,
+                         final MemorySegment segment,
+                         final long start,
+                         final int length,
+                         final long lastWord) {
+        final long[] words = new long[length / 8 + 1];
+        for (int i = 0; i < words.length - 1; i++) {
+            words[i] = segment.get(LONG_LE, start + i * 8L);
+        }
+        words[words.length - 1] = lastWord;
+        final byte[] nameBytes = new byte[length];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, start, nameBytes, 0, length);
+
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            final int base = (stripe * SLOTS + slot) * STRIDE;
+            stats[base + MIN] = Long.MAX_VALUE;
+            stats[base + MAX] = Long.MIN_VALUE;
+        }
+        ENTRIES.setRelease(entries, slot, new Entry(words, length, new String(nameBytes, StandardCharsets.UTF_8)));
+        // Проверка после публикации: иначе ждущие этот слот потоки не дождались бы названия
+        if (size.incrementAndGet() > MAX_STATIONS) {
+            throw new IllegalStateException("Слишком много станций: " + size.get());
+        }
+    }
+
+    private static boolean sameName(final Entry entry,
+                                    final MemorySegment segment,
+                                    final long start,
+                                    final long lastWord) {
+        final long[] words = entry.words();
+        final int fullWords = words.length - 1;
+        for (int i = 0; i < fullWords; i++) {
+            if (segment.get(LONG_LE, start + i * 8L) != words[i]) {
+                return false;
+            }
+        }
+        return words[fullWords] == lastWord;
+    }
+
+    void add(final int slot,
+             final int stripe,
+             final int temperature) {
+        final int base = (stripe * SLOTS + slot) * STRIDE;
+        LONGS.getAndAdd(stats, base + SUM, (long) temperature);
+        LONGS.getAndAdd(stats, base + COUNT, 1L);
+        long min = (long) LONGS.getOpaque(stats, base + MIN);
+        while (temperature < min && !LONGS.weakCompareAndSet(stats, base + MIN, min, (long) temperature)) {
+            min = (long) LONGS.getOpaque(stats, base + MIN);
+        }
+        long max = (long) LONGS.getOpaque(stats, base + MAX);
+        while (temperature > max && !LONGS.weakCompareAndSet(stats, base + MAX, max, (long) temperature)) {
+            max = (long) LONGS.getOpaque(stats, base + MAX);
+        }
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    // Вызывается после завершения всех потоков: копии агрегатов слота складываются, формат - как у StationStats
+    TreeMap<String, String> sortedResults() {
+        final TreeMap<String, String> sorted = new TreeMap<>();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            final Entry entry = entries[slot];
+            if (entry == null) {
+                continue;
+            }
+            final long[] total = {0, 0, Long.MAX_VALUE, Long.MIN_VALUE};
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                final int base = (stripe * SLOTS + slot) * STRIDE;
+                total[SUM] += stats[base + SUM];
+                total[COUNT] += stats[base + COUNT];
+                total[MIN] = Math.min(total[MIN], stats[base + MIN]);
+                total[MAX] = Math.max(total[MAX], stats[base + MAX]);
+            }
+            if (total[COUNT] > 0) {
+                sorted.put(entry.name(), String.format("%.1f/%.1f/%.1f",
+                        total[MIN] / 10.0, total[SUM] / 10.0 / total[COUNT], total[MAX] / 10.0));
+            }
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,62 @@
+package org.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Все потоки пишут в одну SharedStationTable: ни таблиц потоков, ни слияния в конце.
+// Разбор строк - MappedLineSpliterator (тот же SWAR, что в StationDictionarySolution).
+// -Dstripes=1 - копий агрегатов на слот (см. SharedStationTable).
+//
+// Сравнение с таблицами потоков (StationDictionarySolution) по числу станций:
+// java -Dengines=StationDictionarySolution,SharedTableSolution -Dthreads=1,8,32 \
+//      -Ddatasets=few-stations,default,high-cardinality,very-high-cardinality org.example.BenchmarkHarness
+// На немногих станциях все потоки пишут в одни и те же кэш-линии, и атомарные операции
+// упираются в их перекидывание между ядрами; на десятках тысяч станций таблицы потоков
+// (по копии агрегатов на поток) перестают помещаться в кэш, а общая таблица - одна.
+public class SharedTableSolution {
+
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+
+            final long fileSize = channel.size();
+            final MemorySegment fileSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+
+            final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+            final int stripes = Math.max(1, Math.min(numThreads, Integer.getInteger("stripes", 1)));
+            System.out.println("Количество потоков: " + numThreads + ", копий агрегатов: " + stripes);
+
+            final SharedStationTable table = new SharedStationTable(stripes);
+            final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            final List<Future<?>> futures = new ArrayList<>();
+
+            for (int i = 0; i < numThreads; i++) {
+                final long startPos = StationDictionarySolution.alignToLineStart(fileSegment, fileSize / numThreads * i, fileSize);
+                final long endPos = (i == numThreads - 1) ? fileSize : StationDictionarySolution.alignToLineStart(fileSegment, fileSize / numThreads * (i + 1), fileSize);
+                final int stripe = i % stripes;
+                futures.add(executor.submit(() -> new MappedLineSpliterator(fileSegment, startPos, endPos)
+                        .forEachRemaining(line -> table.add(line.slotIn(table), stripe, line.tenths()))));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            final TreeMap<String, String> sortedResults = table.sortedResults();
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            System.out.println("Stations found: " + table.size());
+            System.out.println(sortedResults);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.*;
+import java.util.stream.Collector;
+
+// Collector для группировки замеров по станциям вместо Collectors.toMap с merge-лямбдой:
+// контейнер - StationStats (примитивные массивы по id станции), id выдаёт общий для всех
+// контейнеров словарь, поэтому объединение контейнеров - цикл по массивам без хэширования,
+// а на строку не создаётся ни одного объекта. Результат - отсортированный вид
+// станция -> "min/mean/max", как у Aggregator.aggregate(Path).
+//
+// Характеристика только UNORDERED: с CONCURRENT все потоки писали бы в один контейнер,
+// и каждая строка стоила бы атомарной операции; контейнер на кусок потока и дешёвое слияние быстрее.
+public final class StationCollector {
+
+    private StationCollector() {
+    }
+
+    // Для строк MappedLineSpliterator: id берётся из StationDictionary по уже посчитанному хэшу
+    public static Collector<MappedLineSpliterator.Line, ?, SortedMap<String, String>> lines() {
+        final StationDictionary dictionary = new StationDictionary();
+        return collector(dictionary::size, dictionary::name,
+                (stats, line) -> stats.add(line.stationId(dictionary), line.tenths()));
+    }
+
+    // Для произвольных элементов: название станции и температура в десятых долях
+    public static <T> Collector<T, ?, SortedMap<String, String>> of(final Function<? super T, String> station,
+                                                                   final ToIntFunction<? super T> tenths) {
+        final StationIds ids = new StationIds();
+        return collector(ids::size, ids::name,
+                (stats, element) -> stats.add(ids.idOf(station.apply(element)), tenths.applyAsInt(element)));
+    }
+
+    // Станции без замеров в этом сборе (словарь общий для повторных collect) не выводятся
+    private static <T> Collector<T, StationStats, SortedMap<String, String>> collector(final IntSupplier size,
+                                                                                     final IntFunction<String> name,
+                                                                                     final BiConsumer<StationStats, T> accumulator) {
+        return Collector.of(
+                StationStats::new,
+                accumulator,
+                (left, right) -> {
+                    left.merge(right, size.getAsInt());
+                    return left;
+                },
+                stats -> {
+                    final TreeMap<String, String> sorted = new TreeMap<>();
+                    final int stations = Math.min(size.getAsInt(), stats.count.length);
+                    for (int id = 0; id < stations; id++) {
+                        if (stats.count[id] > 0) {
+                            sorted.put(name.apply(id), stats.format(id));
+                        }
+                    }
+                    return sorted;
+                },
+                Collector.Characteristics.UNORDERED);
+    }
+
+    // Температура вида [-]d?d.d в десятых долях без Double.parseDouble
+    public static int parseTenths(final String temperature) {
+        int pos = 0;
+        final boolean negative = temperature.charAt(0) == '-';
+        if (negative) {
+            pos++;
+        }
+        int value = 0;
+        for (; pos < temperature.length(); pos++) {
+            final char c = temperature.charAt(pos);
+            if (c != '.') {
+                value = value * 10 + (c - '0');
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    // Название -> плотный id для элементов без байтового вида; новые станции добавляются под монитором
+    private static final class StationIds {
+        private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] names = new String[1024];
+        private volatile int size = 0;
+
+        int idOf(final String station) {
+            final Integer id = ids.get(station);
+            return id != null ? id : insert(station);
+        }
+
+        private synchronized int insert(final String station) {
+            final Integer existing = ids.get(station);
+            if (existing != null) {
+                return existing;
+            }
+            final int id = size;
+            if (id == names.length) {
+                names = Arrays.copyOf(names, id * 2);
+            }
+            names[id] = station;
+            size = id + 1;
+            ids.put(station, id);
+            return id;
+        }
+
+        int size() {
+            return size;
+        }
+
+        String name(final int id) {
+            return names[id];
+        }
+    }
+}
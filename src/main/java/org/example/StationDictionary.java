@@ -0,0 +1,203 @@
+package org.example;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Общий для всех потоков словарь станций: название -> плотный int id (0, 1, 2, ...).
+// Только добавление, чтение без блокировок: слоты публикуются через setRelease/getAcquire,
+// а редкие вставки новых станций идут под монитором.
+//
+// Хэш названия - цепочка mix по словам от случайного на каждый запуск SEED (см.
+// StationDictionarySolution.processLine). Слот берётся из старших бит хэша, а в записи хранится
+// полный 64-битный хэш: чужие записи в цепочке отсекаются одним сравнением long.
+//
+// Цепочка проб ограничена MAX_PROBE: станции, которым в своём окне не нашлось места, уходят в
+// overflow - ConcurrentHashMap по названию (String сравнимы, поэтому даже при совпадении хэшей
+// корзина - дерево, а не список). Окно только заполняется, так что станция не переходит из
+// таблицы в overflow и обратно; при честном хэше overflow пуст.
+final class StationDictionary {
+
+    static final int MAX_STATIONS = 1 << 15; // 1BRC гарантирует не больше 10 000
+    private static final int CAPACITY_BITS = 16;
+    private static final int CAPACITY = 1 << CAPACITY_BITS; // заполнение не выше 50%
+    private static final int MAX_PROBE = 64;
+
+    // -Dhash.seed=... - воспроизводимый запуск
+    static final long SEED = Long.getLong("hash.seed", new SecureRandom().nextLong());
+
+    private static final ValueLayout.OfLong LONG_LE =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Entry[].class);
+
+    // Шаг хэша по очередному слову названия. Старшая половина после умножения сворачивается в
+    // младшую: без этого разница в бите 63 слова (старший бит байта 7) проходит умножение на нечётное
+    // без изменений, и два слова с переключённым битом 63 дают тот же хэш при любом SEED
+    static long mix(final long hash,
+                    final long word) {
+        final long h = (hash ^ word) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    // Название хранится словами по 8 байт (последнее замаскировано) для сравнения без побайтового цикла
+    static final class Entry {
+        final long hash;
+        final long[] words;
+        final int length;
+        final int id;
+
+        Entry(final long hash,
+              final long[] words,
+              final int length,
+              final int id) {
+            this.hash = hash;
+            this.words = words;
+            this.length = length;
+            this.id = id;
+        }
+    }
+
+    private final Entry[] slots = new Entry[CAPACITY];
+    private final String[] names = new String[MAX_STATIONS];
+    private final ConcurrentHashMap<String, Integer> overflow = new ConcurrentHashMap<>();
+    private volatile int size = 0;
+    // Самая длинная цепочка проб при вставке - столько же проб нужно и при поиске этой станции
+    private volatile int maxProbe = 0;
+
+    // id станции, название которой лежит в segment[start, start + length); lastWord - последнее
+    // (неполное) слово названия с обнулёнными байтами после конца, hash - хэш по словам
+    int idOf(final MemorySegment segment,
+             final long start,
+             final int length,
+             final long lastWord,
+             final long hash) {
+        final int id = find(segment, start, length, lastWord, hash);
+        return id >= 0 ? id : insert(segment, start, length, lastWord, hash);
+    }
+
+    // Как idOf, но без вставки: -1, если станции ещё нет
+    int find(final MemorySegment segment,
+             final long start,
+             final int length,
+             final long lastWord,
+             final long hash) {
+        int index = slotOf(hash);
+        for (int probe = 0; probe < MAX_PROBE; probe++) {
+            final Entry entry = (Entry) SLOTS.getAcquire(slots, index);
+            if (entry == null) {
+                return -1;
+            }
+            if (entry.hash == hash && entry.length == length && sameName(entry, segment, start, lastWord)) {
+                return entry.id;
+            }
+            index = (index + 1) & (CAPACITY - 1);
+        }
+        if (overflow.isEmpty()) {
+            return -1;
+        }
+        final Integer id = overflow.get(nameOf(segment, start, length));
+        return id != null ? id : -1;
+    }
+
+    private static int slotOf(final long hash) {
+        return (int) (hash >>> (64 - CAPACITY_BITS));
+    }
+
+    private static boolean sameName(final Entry entry,
+                                    final MemorySegment segment,
+                                    final long start,
+                                    final long lastWord) {
+        final long[] words = entry.words;
+        final int fullWords = words.length - 1;
+        for (int i = 0; i < fullWords; i++) {
+            if (segment.get(LONG_LE, start + i * 8L) != words[i]) {
+                return false;
+            }
+        }
+        return words[fullWords] == lastWord;
+    }
+
+    // Под монитором заново пробируем: станцию мог успеть добавить другой поток
+    private synchronized int insert(final MemorySegment segment,
+                                    final long start,
+                                    final int length,
+                                    final long lastWord,
+                                    final long hash) {
+        int index = slotOf(hash);
+        int probes = 1;
+        while (probes <= MAX_PROBE) {
+            final Entry entry = slots[index];
+            if (entry == null) {
+                break;
+            }
+            if (entry.hash == hash && entry.length == length && sameName(entry, segment, start, lastWord)) {
+                return entry.id;
+            }
+            index = (index + 1) & (CAPACITY - 1);
+            probes++;
+        }
+
+        final int id = size;
+        if (probes > MAX_PROBE) {
+            final String name = nameOf(segment, start, length);
+            final Integer existing = overflow.get(name);
+            if (existing != null) {
+                return existing;
+            }
+            if (id >= MAX_STATIONS) {
+                throw new IllegalStateException("Слишком много станций: " + id);
+            }
+            names[id] = name;
+            overflow.put(name, id);
+            size = id + 1;
+            return id;
+        }
+        if (probes > maxProbe) {
+            maxProbe = probes;
+        }
+
+        if (id >= MAX_STATIONS) {
+            throw new IllegalStateException("Слишком много станций: " + id);
+        }
+        final long[] words = new long[length / 8 + 1];
+        for (int i = 0; i < words.length - 1; i++) {
+            words[i] = segment.get(LONG_LE, start + i * 8L);
+        }
+        words[words.length - 1] = lastWord;
+        names[id] = nameOf(segment, start, length);
+
+        SLOTS.setRelease(slots, index, new Entry(hash, words, length, id));
+        size = id + 1;
+        return id;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int maxProbe() {
+        return maxProbe;
+    }
+
+    // Станции за пределом MAX_PROBE
+    int overflowSize() {
+        return overflow.size();
+    }
+
+    private static String nameOf(final MemorySegment segment,
+                                 final long start,
+                                 final int length) {
+        final byte[] nameBytes = new byte[length];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, start, nameBytes, 0, length);
+        return new String(nameBytes, StandardCharsets.UTF_8);
+    }
+
+    String name(final int id) {
+        return names[id];
+    }
+}
@@ -0,0 +1,371 @@
+package org.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Общий словарь станций (название -> id) + агрегаты потоков в struct-of-arrays по id.
+// Поток не хранит ни копий названий, ни объектов-результатов; слияние - цикл по массивам без хэширования.
+// -Dstations=A,B или -Dprefix=St - агрегировать только выбранные станции (см. StationFilter).
+// -Dstrict=true - проверять UTF-8 названий и формат [-]d?d.d прямо в SWAR-разборе,
+// отклонённые строки считаются и выводятся образцами со смещением в файле (см. LineValidator).
+// -Dresults.store=results.store - сохранить результат в замапленный индексированный файл (см. ResultStore).
+public class StationDictionarySolution {
+
+    private static final ValueLayout.OfLong LONG_LE =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Строки ближе TAIL_PADDING к концу файла разбираем из копии с запасом (чтение по 8 байт)
+    private static final int TAIL_PADDING = 128;
+
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+
+            final long fileSize = channel.size();
+            final MemorySegment fileSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+
+            final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+            final StationFilter filter = StationFilter.fromProperties();
+            final boolean strict = Boolean.getBoolean("strict");
+            System.out.println("Количество потоков: " + numThreads + (filter != null ? ", фильтр: " + filter : "")
+                    + (strict ? ", строгий режим" : ""));
+
+            final StationDictionary dictionary = new StationDictionary();
+            // Один поток - разбор прямо в вызывающем потоке, без пула
+            final ExecutorService executor = numThreads > 1 ? Executors.newFixedThreadPool(numThreads) : null;
+            final List<Future<StationStats>> futures = new ArrayList<>();
+            final List<LineValidator> validators = new ArrayList<>();
+
+            for (int i = 0; i < numThreads; i++) {
+                final long startPos = alignToLineStart(fileSegment, fileSize / numThreads * i, fileSize);
+                final long endPos = (i == numThreads - 1) ? fileSize : alignToLineStart(fileSegment, fileSize / numThreads * (i + 1), fileSize);
+                final LineValidator validator = strict ? new LineValidator() : null;
+                if (strict) {
+                    validators.add(validator);
+                }
+                if (executor == null) {
+                    futures.add(CompletableFuture.completedFuture(processChunk(fileSegment, fileSize, startPos, endPos, dictionary, filter, validator)));
+                } else {
+                    futures.add(executor.submit(() -> processChunk(fileSegment, fileSize, startPos, endPos, dictionary, filter, validator)));
+                }
+            }
+
+            final StationStats finalResults = new StationStats(StationDictionary.MAX_STATIONS);
+            for (final Future<StationStats> future : futures) {
+                final StationStats chunkResults = future.get();
+                finalResults.merge(chunkResults, dictionary.size());
+            }
+
+            if (executor != null) {
+                executor.shutdown();
+            }
+
+            final TreeMap<String, String> sortedResults = new TreeMap<>();
+            // Станции только из отклонённых строк (невалидный UTF-8) остаются в словаре без замеров
+            for (int id = 0; id < dictionary.size(); id++) {
+                if (finalResults.count[id] > 0 && (filter == null || filter.matches(dictionary.name(id)))) {
+                    sortedResults.put(dictionary.name(id), finalResults.format(id));
+                }
+            }
+
+            final String store = System.getProperty("results.store");
+            if (store != null) {
+                ResultStore.write(Path.of(store), dictionary.size(), dictionary::name,
+                        id -> filter == null || filter.matches(dictionary.name(id)), finalResults);
+            }
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            if (strict) {
+                final LineValidator total = new LineValidator();
+                for (final LineValidator validator : validators) {
+                    total.merge(validator);
+                }
+                total.print();
+            }
+            System.out.println("Stations found: " + sortedResults.size() + ", max probe: " + dictionary.maxProbe()
+                    + ", overflow: " + dictionary.overflowSize());
+            System.out.println(sortedResults);
+        }
+    }
+
+    // Позиция первой строки, начинающейся не раньше position
+    static long alignToLineStart(final MemorySegment segment,
+                                 final long position,
+                                 final long fileSize) {
+        if (position == 0) {
+            return 0;
+        }
+        long pos = position - 1;
+        while (pos < fileSize && segment.get(ValueLayout.JAVA_BYTE, pos) != '\n') {
+            pos++;
+        }
+        return Math.min(pos + 1, fileSize);
+    }
+
+    static StationStats processChunk(final MemorySegment segment,
+                                     final long fileSize,
+                                     final long start,
+                                     final long end,
+                                     final StationDictionary dictionary,
+                                     final StationFilter filter,
+                                     final LineValidator validator) {
+        final StationStats stats = new StationStats();
+        final long safeEnd = Math.min(end, Math.max(0, fileSize - TAIL_PADDING));
+
+        long pos = start;
+        if (validator != null) {
+            // Фильтр в строгом режиме применяется только к результату: проверяется каждая строка
+            while (pos < safeEnd) {
+                pos = processStrictLine(segment, pos, fileSize, pos, dictionary, stats, validator);
+            }
+        } else if (filter == null) {
+            while (pos < safeEnd) {
+                pos = processLine(segment, pos, dictionary, stats);
+            }
+        } else {
+            while (pos < safeEnd) {
+                pos = processFilteredLine(segment, pos, filter, dictionary, stats);
+            }
+        }
+
+        // Хвост у конца файла - из копии с нулевым запасом; последней строке без '\n' он дописывается
+        if (pos < end) {
+            int tailLength = (int) (fileSize - pos);
+            final byte[] tail = new byte[tailLength + TAIL_PADDING];
+            MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, pos, tail, 0, tailLength);
+            if (tail[tailLength - 1] != '\n') {
+                tail[tailLength++] = '\n';
+            }
+            final MemorySegment tailSegment = MemorySegment.ofArray(tail);
+            long tailPos = 0;
+            while (tailPos < end - pos) {
+                if (validator != null) {
+                    tailPos = processStrictLine(tailSegment, tailPos, tailLength, pos + tailPos, dictionary, stats, validator);
+                } else {
+                    tailPos = filter == null
+                            ? processLine(tailSegment, tailPos, dictionary, stats)
+                            : processFilteredLine(tailSegment, tailPos, filter, dictionary, stats);
+                }
+            }
+        }
+
+        return stats;
+    }
+
+    // SWAR-поиск ';' с хэшированием по словам, id из словаря, branchless-разбор температуры.
+    // Читает словами по 8 байт: после строки в сегменте должно оставаться не меньше 8 байт
+    static long processLine(final MemorySegment segment,
+                            final long lineStart,
+                            final StationDictionary dictionary,
+                            final StationStats stats) {
+        long pos = lineStart;
+        long hash = StationDictionary.SEED;
+        long word = segment.get(LONG_LE, pos);
+        long match = semicolonMatch(word);
+        while (match == 0) {
+            hash = StationDictionary.mix(hash, word);
+            pos += 8;
+            word = segment.get(LONG_LE, pos);
+            match = semicolonMatch(word);
+        }
+        // Только байты до первого ';': в том же слове может быть ';' следующей строки
+        final long lastWord = word & ((Long.lowestOneBit(match) >>> 7) - 1);
+        hash = StationDictionary.mix(hash, lastWord);
+        final long semicolonPos = pos + (Long.numberOfTrailingZeros(match) >>> 3);
+
+        final int id = dictionary.idOf(segment, lineStart, (int) (semicolonPos - lineStart), lastWord, hash);
+
+        final long numberWord = segment.get(LONG_LE, semicolonPos + 1);
+        final int decimalSepPos = Long.numberOfTrailingZeros(~numberWord & 0x10101000L);
+        final int shift = 28 - decimalSepPos;
+        final long signed = (~numberWord << 59) >> 63;
+        final long designMask = ~(signed & 0xFF);
+        final long digits = ((numberWord & designMask) << shift) & 0x0F000F0F00L;
+        final long absValue = ((digits * 0x640a0001L) >>> 32) & 0x3FF;
+        final int temperature = (int) ((absValue ^ signed) - signed);
+
+        stats.add(id, temperature);
+
+        return semicolonPos + 1 + (decimalSepPos >>> 3) + 3;
+    }
+
+    // Строка разбирается, только если её первое слово прошло фильтр; иначе - сразу к следующей.
+    // Станции, совпавшие с фильтром лишь первыми 8 байтами, попадут в таблицу - их отсекает
+    // StationFilter.matches при выдаче результата
+    static long processFilteredLine(final MemorySegment segment,
+                                    final long lineStart,
+                                    final StationFilter filter,
+                                    final StationDictionary dictionary,
+                                    final StationStats stats) {
+        if (filter.mayMatch(segment.get(LONG_LE, lineStart))) {
+            return processLine(segment, lineStart, dictionary, stats);
+        }
+        return skipLine(segment, lineStart);
+    }
+
+    // Начало следующей строки: SWAR-поиск '\n' словами по 8 байт
+    static long skipLine(final MemorySegment segment,
+                         final long lineStart) {
+        long pos = lineStart;
+        while (true) {
+            final long xor = segment.get(LONG_LE, pos) ^ 0x0A0A0A0A0A0A0A0AL;
+            final long match = ~(((xor & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL) | xor | 0x7F7F7F7F7F7F7F7FL);
+            if (match != 0) {
+                return pos + (Long.numberOfTrailingZeros(match) >>> 3) + 1;
+            }
+            pos += 8;
+        }
+    }
+
+    // processLine с проверкой формата. Горячий путь лишь копит признаки ошибки по уже прочитанным
+    // словам: байты < 0x20 (в том числе '\n') и не-ASCII в названии ловятся одной маской
+    // (w - 0x20..) | w, такое название проверяется раз на станцию - перед вставкой в словарь (LineValidator.isValidName);
+    // грамматика [-]d?d.d\n - по тем же позициям точки и знака, что нужны для разбора, и таблицам
+    // ожидаемых байтов. Неверную строку заново разбирает rejectLine: определяет причину и пропускает
+    // её до '\n' (не дальше limit); fileOffset - смещение lineStart в файле
+    static long processStrictLine(final MemorySegment segment,
+                                  final long lineStart,
+                                  final long limit,
+                                  final long fileOffset,
+                                  final StationDictionary dictionary,
+                                  final StationStats stats,
+                                  final LineValidator validator) {
+        long pos = lineStart;
+        long hash = StationDictionary.SEED;
+        long suspicious = 0;
+        long word = segment.get(LONG_LE, pos);
+        long match = semicolonMatch(word);
+        while (match == 0 && pos - lineStart < LineValidator.MAX_NAME_BYTES) {
+            suspicious |= (word - 0x2020202020202020L) | word;
+            hash = StationDictionary.mix(hash, word);
+            pos += 8;
+            word = segment.get(LONG_LE, pos);
+            match = semicolonMatch(word);
+        }
+        final long nameMask = (Long.lowestOneBit(match) >>> 7) - 1;
+        final long lastWord = word & nameMask;
+        suspicious |= ((lastWord - 0x2020202020202020L) | lastWord) & nameMask;
+        hash = StationDictionary.mix(hash, lastWord);
+        final long semicolonPos = pos + (Long.numberOfTrailingZeros(match) >>> 3);
+        final int nameLength = (int) (semicolonPos - lineStart);
+
+        final long numberWord = segment.get(LONG_LE, semicolonPos + 1);
+        final int decimalSepPos = Long.numberOfTrailingZeros(~numberWord & 0x10101000L);
+        final int shape = (decimalSepPos >>> 3) * 2 + (int) ((~numberWord >>> 4) & 1);
+        if (match == 0 || nameLength == 0 || nameLength > LineValidator.MAX_NAME_BYTES
+                || !digitsAt(numberWord, TEMPERATURE_DIGITS[shape])
+                || ((numberWord ^ TEMPERATURE_BYTES[shape]) & TEMPERATURE_BYTES_MASK[shape]) != 0) {
+            return rejectLine(segment, lineStart, limit, fileOffset, validator);
+        }
+
+        // В словарь попадают только проверенные названия: иначе каждая неверная строка занимала бы id
+        // навсегда, и поток мусора упёрся бы в MAX_STATIONS. Поэтому найденная станция заведомо верна,
+        // а полная проверка байтов - только для подозрительного названия, которого ещё нет в словаре
+        int id = dictionary.find(segment, lineStart, nameLength, lastWord, hash);
+        if (id < 0) {
+            if ((suspicious & 0x8080808080808080L) != 0 && !LineValidator.isValidName(segment, lineStart, nameLength)) {
+                return rejectLine(segment, lineStart, limit, fileOffset, validator);
+            }
+            id = dictionary.idOf(segment, lineStart, nameLength, lastWord, hash);
+        }
+
+        final int shift = 28 - decimalSepPos;
+        final long signed = (~numberWord << 59) >> 63;
+        final long designMask = ~(signed & 0xFF);
+        final long digits = ((numberWord & designMask) << shift) & 0x0F000F0F00L;
+        final long absValue = ((digits * 0x640a0001L) >>> 32) & 0x3FF;
+        stats.add(id, (int) ((absValue ^ signed) - signed));
+
+        return semicolonPos + 1 + (decimalSepPos >>> 3) + 3;
+    }
+
+    // Таблицы грамматики температуры по shape = позиция точки * 2 + признак знака (бит 4 первого байта
+    // равен 0 у '-', '.', '+' и т.п.; у цифр - 1). Для допустимых форм: цифры до точки и одна после,
+    // точные байты - '-' в начале, '.' и '\n'. Недопустимые формы требуют, чтобы первый байт был
+    // одновременно цифрой и '\n', - такая строка не пройдёт никогда
+    private static final long[] TEMPERATURE_DIGITS = new long[18];
+    private static final long[] TEMPERATURE_BYTES = new long[18];
+    private static final long[] TEMPERATURE_BYTES_MASK = new long[18];
+
+    static {
+        for (int shape = 0; shape < 18; shape++) {
+            final int dotPos = shape / 2;
+            final int sign = shape % 2;
+            final int intDigits = dotPos - sign;
+            if (dotPos > 3 || intDigits < 1 || intDigits > 2) {
+                TEMPERATURE_DIGITS[shape] = 0xFFL;
+                TEMPERATURE_BYTES[shape] = '\n';
+                TEMPERATURE_BYTES_MASK[shape] = 0xFFL;
+                continue;
+            }
+            long digits = 0xFFL << ((dotPos + 1) * 8);
+            for (int i = sign; i < dotPos; i++) {
+                digits |= 0xFFL << (i * 8);
+            }
+            long bytes = ((long) '.' << (dotPos * 8)) | ((long) '\n' << ((dotPos + 2) * 8));
+            long mask = (0xFFL << (dotPos * 8)) | (0xFFL << ((dotPos + 2) * 8));
+            if (sign == 1) {
+                bytes |= '-';
+                mask |= 0xFFL;
+            }
+            TEMPERATURE_DIGITS[shape] = digits;
+            TEMPERATURE_BYTES[shape] = bytes;
+            TEMPERATURE_BYTES_MASK[shape] = mask;
+        }
+    }
+
+    // Медленный путь для отклонённой строки: побайтно находим её конец и причину
+    private static long rejectLine(final MemorySegment segment,
+                                   final long lineStart,
+                                   final long limit,
+                                   final long fileOffset,
+                                   final LineValidator validator) {
+        long lineEnd = lineStart;
+        long semicolonPos = -1;
+        while (lineEnd < limit && segment.get(ValueLayout.JAVA_BYTE, lineEnd) != '\n') {
+            if (semicolonPos < 0 && segment.get(ValueLayout.JAVA_BYTE, lineEnd) == ';') {
+                semicolonPos = lineEnd;
+            }
+            lineEnd++;
+        }
+
+        final LineValidator.Reason reason;
+        if (semicolonPos < 0) {
+            reason = LineValidator.Reason.NO_SEMICOLON;
+        } else if (semicolonPos == lineStart) {
+            reason = LineValidator.Reason.EMPTY_NAME;
+        } else if (semicolonPos - lineStart > LineValidator.MAX_NAME_BYTES) {
+            reason = LineValidator.Reason.NAME_TOO_LONG;
+        } else if (!LineValidator.isValidName(segment, lineStart, (int) (semicolonPos - lineStart))) {
+            reason = LineValidator.Reason.INVALID_NAME;
+        } else {
+            reason = LineValidator.Reason.BAD_TEMPERATURE;
+        }
+        validator.reject(reason, segment, lineStart, lineEnd, fileOffset);
+        return Math.min(lineEnd + 1, limit);
+    }
+
+    // Все байты под mask - ASCII-цифры: старший полубайт 3, младший + 6 не переносится в бит 4
+    private static boolean digitsAt(final long word,
+                                    final long mask) {
+        final long highNibbles = ((word & 0xF0F0F0F0F0F0F0F0L) ^ 0x3030303030303030L) & mask;
+        final long lowOverflow = ((word & 0x0F0F0F0F0F0F0F0FL) + 0x0606060606060606L) & 0x1010101010101010L & mask;
+        return (highNibbles | lowOverflow) == 0;
+    }
+
+    static long semicolonMatch(final long word) {
+        final long xor = word ^ 0x3B3B3B3B3B3B3B3BL;
+        return ~(((xor & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL) | xor | 0x7F7F7F7F7F7F7F7FL);
+    }
+}
@@ -0,0 +1,93 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Фильтр станций: явный набор названий или префикс.
+// В горячем цикле проверяется только первое слово строки (8 байт) по маске против маленького
+// набора ключей, неподходящая строка пропускается до '\n' без разбора температуры и без таблицы.
+// Первое слово совпадает лишь с первыми 8 байтами длинного названия, поэтому точная проверка
+// (matches) делается один раз на станцию - при выдаче результата.
+public final class StationFilter {
+
+    private final long[] keys;
+    private final long[] masks;
+    private final Set<String> names;
+    private final String prefix;
+
+    private StationFilter(final long[] keys,
+                          final long[] masks,
+                          final Set<String> names,
+                          final String prefix) {
+        this.keys = keys;
+        this.masks = masks;
+        this.names = names;
+        this.prefix = prefix;
+    }
+
+    // Ключ названия короче 8 байт включает ';', чтобы "Abc" не совпадало с "Abcd"
+    public static StationFilter names(final Collection<String> stations) {
+        final long[] keys = new long[stations.size()];
+        final long[] masks = new long[stations.size()];
+        int i = 0;
+        for (final String station : stations) {
+            final byte[] name = (station + ";").getBytes(StandardCharsets.UTF_8);
+            keys[i] = firstWord(name);
+            masks[i] = maskOf(name.length);
+            i++;
+        }
+        return new StationFilter(keys, masks, Set.copyOf(stations), null);
+    }
+
+    // Префикс без ';': совпадение первых min(длина, 8) байт
+    public static StationFilter prefix(final String prefix) {
+        final byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+        return new StationFilter(new long[]{firstWord(bytes)}, new long[]{maskOf(bytes.length)}, null, prefix);
+    }
+
+    // -Dstations=A,B,C или -Dprefix=St; null, если фильтр не задан
+    static StationFilter fromProperties() {
+        final String stations = System.getProperty("stations");
+        if (stations != null) {
+            // Set.of бросает на повторах, а "-Dstations=A,A" - не ошибка
+            return names(new LinkedHashSet<>(Arrays.asList(stations.split(","))));
+        }
+        final String prefix = System.getProperty("prefix");
+        return prefix != null ? prefix(prefix) : null;
+    }
+
+    // Горячий путь: word - первые 8 байт строки в little-endian
+    boolean mayMatch(final long word) {
+        for (int i = 0; i < keys.length; i++) {
+            if ((word & masks[i]) == keys[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Точная проверка для отбора результата
+    public boolean matches(final String station) {
+        return names != null ? names.contains(station) : station.startsWith(prefix);
+    }
+
+    @Override
+    public String toString() {
+        return names != null ? "stations=" + names : "prefix=" + prefix;
+    }
+
+    private static long firstWord(final byte[] bytes) {
+        long word = 0;
+        for (int i = Math.min(8, bytes.length) - 1; i >= 0; i--) {
+            word = (word << 8) | (bytes[i] & 0xFF);
+        }
+        return word;
+    }
+
+    private static long maskOf(final int length) {
+        return length >= 8 ? -1L : (1L << (length * 8)) - 1;
+    }
+}
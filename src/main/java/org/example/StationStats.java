@@ -0,0 +1,82 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Агрегаты потока в виде struct-of-arrays, индекс - id станции из StationDictionary.
+// Температура в десятых долях градуса: [-999, 999] помещается в short.
+final class StationStats {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    short[] min;
+    short[] max;
+    long[] sum;
+    int[] count;
+
+    StationStats() {
+        this(INITIAL_CAPACITY);
+    }
+
+    StationStats(final int capacity) {
+        min = new short[capacity];
+        max = new short[capacity];
+        sum = new long[capacity];
+        count = new int[capacity];
+        Arrays.fill(min, Short.MAX_VALUE);
+        Arrays.fill(max, Short.MIN_VALUE);
+    }
+
+    void add(final int id,
+             final int temperature) {
+        if (id >= count.length) {
+            grow(id + 1);
+        }
+        if (temperature < min[id]) {
+            min[id] = (short) temperature;
+        }
+        if (temperature > max[id]) {
+            max[id] = (short) temperature;
+        }
+        sum[id] += temperature;
+        count[id]++;
+    }
+
+    // Слияние - простой цикл по массивам без хэширования, C2 его векторизует
+    void merge(final StationStats other,
+               final int size) {
+        if (size > count.length) {
+            grow(size);
+        }
+        final int n = Math.min(size, other.count.length);
+        for (int id = 0; id < n; id++) {
+            min[id] = (short) Math.min(min[id], other.min[id]);
+            max[id] = (short) Math.max(max[id], other.max[id]);
+            sum[id] += other.sum[id];
+            count[id] += other.count[id];
+        }
+    }
+
+    // Обнуление первых size id без перевыделения - для повторного использования таблицы
+    void reset(final int size) {
+        final int n = Math.min(size, count.length);
+        Arrays.fill(min, 0, n, Short.MAX_VALUE);
+        Arrays.fill(max, 0, n, Short.MIN_VALUE);
+        Arrays.fill(sum, 0, n, 0);
+        Arrays.fill(count, 0, n, 0);
+    }
+
+    String format(final int id) {
+        return String.format("%.1f/%.1f/%.1f", min[id] / 10.0, sum[id] / 10.0 / count[id], max[id] / 10.0);
+    }
+
+    private void grow(final int required) {
+        final int oldCapacity = count.length;
+        final int capacity = Math.max(required, oldCapacity * 2);
+        min = Arrays.copyOf(min, capacity);
+        max = Arrays.copyOf(max, capacity);
+        sum = Arrays.copyOf(sum, capacity);
+        count = Arrays.copyOf(count, capacity);
+        Arrays.fill(min, oldCapacity, capacity, Short.MAX_VALUE);
+        Arrays.fill(max, oldCapacity, capacity, Short.MIN_VALUE);
+    }
+}
@@ -0,0 +1,237 @@
+package org.example;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.lang.foreign.MemorySegment;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Агрегация из несикабельного потока: stdin (zcat measurements.txt.gz | java ...) или TCP.
+// Один поток читает вход в кольцо больших буферов и отдаёт блоки, выровненные по строкам,
+// пулу разборщиков; разбор и слияние - как в StationDictionarySolution.
+//
+// -Dinput=stdin (по умолчанию) | tcp://host:port (подключиться) | listen:port (принять одно соединение)
+public class StreamingSolution {
+
+    private static final int BLOCK_SIZE = 8 * 1024 * 1024; // 8 MB
+    // Перед областью чтения - место под перенесённый хвост строки (строка не длиннее 107 байт),
+    // после данных - запас, чтобы разбор словами по 8 байт не вышел за массив
+    private static final int HEADROOM = 128;
+    private static final int PADDING = 128;
+
+    // Блок целых строк buffer[from, to)
+    record Block(byte[] buffer, int from, int to) {
+    }
+
+    private static final Block END_OF_STREAM = new Block(null, 0, 0);
+
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final String input = System.getProperty("input", "stdin");
+        final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+        System.out.println("Количество потоков: " + numThreads + ", вход: " + input);
+
+        // Кольцо буферов: по два на разборщика, пока все заняты - чтение ждёт (backpressure)
+        final int ringSize = 2 * numThreads + 1;
+        final BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            freeBuffers.add(new byte[HEADROOM + BLOCK_SIZE + PADDING]);
+        }
+        // Место и под все буферы кольца, и под маркеры конца для каждого разборщика
+        final BlockingQueue<Block> blocks = new ArrayBlockingQueue<>(ringSize + numThreads);
+
+        final StationDictionary dictionary = new StationDictionary();
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        final List<Future<StationStats>> futures = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            futures.add(executor.submit(() -> parseBlocks(blocks, freeBuffers, dictionary)));
+        }
+
+        final long bytes;
+        try (ReadableByteChannel channel = openInput(input)) {
+            bytes = readBlocks(channel, blocks, freeBuffers, futures);
+        } finally {
+            for (int i = 0; i < numThreads; i++) {
+                blocks.put(END_OF_STREAM);
+            }
+        }
+
+        final StationStats finalResults = new StationStats(StationDictionary.MAX_STATIONS);
+        for (final Future<StationStats> future : futures) {
+            finalResults.merge(future.get(), dictionary.size());
+        }
+
+        executor.shutdown();
+
+        final TreeMap<String, String> sortedResults = new TreeMap<>();
+        for (int id = 0; id < dictionary.size(); id++) {
+            sortedResults.put(dictionary.name(id), finalResults.format(id));
+        }
+
+        final long elapsed = System.currentTimeMillis() - start;
+        System.out.println("Time: " + elapsed + "ms, " + (bytes / (1024 * 1024)) + "MB, "
+                + (bytes / (1024 * 1024) * 1000 / Math.max(1, elapsed)) + " MB/s");
+        System.out.println("Stations found: " + sortedResults.size());
+        System.out.println(sortedResults);
+    }
+
+    static ReadableByteChannel openInput(final String input) throws Exception {
+        if (input.equals("stdin")) {
+            // Канал прямо над fd 0, без буфера System.in
+            return new FileInputStream(FileDescriptor.in).getChannel();
+        }
+        if (input.startsWith("tcp://")) {
+            final String address = input.substring("tcp://".length());
+            final int colon = address.lastIndexOf(':');
+            return SocketChannel.open(new InetSocketAddress(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1))));
+        }
+        if (input.startsWith("listen:")) {
+            try (ServerSocketChannel server = ServerSocketChannel.open()) {
+                server.bind(new InetSocketAddress(Integer.parseInt(input.substring("listen:".length()))));
+                System.out.println("Ждём подключения на " + server.getLocalAddress());
+                return server.accept();
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный вход: " + input);
+    }
+
+    // Поток чтения: заполняет буфер целиком, отдаёт всё до последнего '\n',
+    // а незаконченную строку переносит в начало следующего буфера
+    static long readBlocks(final ReadableByteChannel channel,
+                           final BlockingQueue<Block> blocks,
+                           final BlockingQueue<byte[]> freeBuffers,
+                           final List<Future<StationStats>> workers) throws Exception {
+        final byte[] carry = new byte[HEADROOM];
+        int carryLen = 0;
+        long total = 0;
+        boolean eof = false;
+
+        while (!eof) {
+            final byte[] buffer = takeFreeBuffer(freeBuffers, workers);
+            System.arraycopy(carry, 0, buffer, HEADROOM - carryLen, carryLen);
+
+            final ByteBuffer target = ByteBuffer.wrap(buffer, HEADROOM, BLOCK_SIZE);
+            while (target.hasRemaining()) {
+                if (channel.read(target) < 0) {
+                    eof = true;
+                    break;
+                }
+            }
+            final int limit = target.position();
+            total += limit - HEADROOM;
+
+            int lastNewline = limit - 1;
+            while (lastNewline >= HEADROOM && buffer[lastNewline] != '\n') {
+                lastNewline--;
+            }
+
+            final int from = HEADROOM - carryLen;
+            if (eof) {
+                // Последняя строка может быть без '\n', а при обрыве соединения - оборвана где угодно:
+                // "Abha", "Abha;" или "Abha;1" - берём её, только если после ';' целая температура
+                int to = limit;
+                if (to > from && buffer[to - 1] != '\n') {
+                    final int lineStart = Math.max(from, lastNewline + 1);
+                    final int semicolon = indexOf(buffer, lineStart, to, (byte) ';');
+                    if (semicolon < 0 || !isTemperature(buffer, semicolon + 1, to)) {
+                        System.out.println("Оборванная последняя строка пропущена: " + (to - lineStart) + " байт");
+                        to = lineStart;
+                    } else {
+                        buffer[to++] = '\n';
+                    }
+                }
+                if (to > from) {
+                    blocks.put(new Block(buffer, from, to));
+                } else {
+                    freeBuffers.put(buffer);
+                }
+                break;
+            }
+            if (lastNewline < HEADROOM) {
+                throw new IllegalStateException("Нет перевода строки в блоке " + BLOCK_SIZE + " байт");
+            }
+
+            carryLen = limit - lastNewline - 1;
+            if (carryLen > HEADROOM) {
+                throw new IllegalStateException("Строка длиннее " + HEADROOM + " байт");
+            }
+            System.arraycopy(buffer, lastNewline + 1, carry, 0, carryLen);
+            blocks.put(new Block(buffer, from, lastNewline + 1));
+        }
+        return total;
+    }
+
+    // Если разборщик упал, его буферы в кольцо не вернутся - не ждём вечно, а пробрасываем его ошибку
+    private static byte[] takeFreeBuffer(final BlockingQueue<byte[]> freeBuffers,
+                                         final List<Future<StationStats>> workers) throws Exception {
+        while (true) {
+            final byte[] buffer = freeBuffers.poll(100, TimeUnit.MILLISECONDS);
+            if (buffer != null) {
+                return buffer;
+            }
+            for (final Future<StationStats> worker : workers) {
+                if (worker.isDone()) {
+                    worker.get();
+                    throw new IllegalStateException("Разборщик завершился до конца потока");
+                }
+            }
+        }
+    }
+
+    private static int indexOf(final byte[] buffer,
+                               final int from,
+                               final int to,
+                               final byte target) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Температура целиком: -?\d?\d\.\d
+    private static boolean isTemperature(final byte[] buffer,
+                                         final int from,
+                                         final int to) {
+        final int digits = from < to && buffer[from] == '-' ? from + 1 : from;
+        final int length = to - digits;
+        if (length != 3 && length != 4) {
+            return false;
+        }
+        for (int i = digits; i < to - 2; i++) {
+            if (buffer[i] < '0' || buffer[i] > '9') {
+                return false;
+            }
+        }
+        return buffer[to - 2] == '.' && buffer[to - 1] >= '0' && buffer[to - 1] <= '9';
+    }
+
+    // Разборщик: берёт блоки, пока не придёт END_OF_STREAM, и возвращает буферы в кольцо
+    static StationStats parseBlocks(final BlockingQueue<Block> blocks,
+                                    final BlockingQueue<byte[]> freeBuffers,
+                                    final StationDictionary dictionary) throws Exception {
+        final StationStats stats = new StationStats();
+        while (true) {
+            final Block block = blocks.take();
+            if (block == END_OF_STREAM) {
+                return stats;
+            }
+            final MemorySegment segment = MemorySegment.ofArray(block.buffer());
+            long pos = block.from();
+            try {
+                while (pos < block.to()) {
+                    pos = StationDictionarySolution.processLine(segment, pos, dictionary, stats);
+                }
+            } finally {
+                freeBuffers.put(block.buffer());
+            }
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package org.example;
 
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.channels.AsynchronousFileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -52,12 +52,12 @@ public class SwarAndThreadLocalMaps {
     static void main(final String[] args) throws Exception {
         final long start = System.currentTimeMillis();
 
-        final Path filePath = Path.of("./measurements.txt");
-        final RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "r");
-        final FileChannel channel = file.getChannel();
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+        // Асинхронный канал: следующий буфер читается, пока разбирается текущий
+        final AsynchronousFileChannel channel = AsynchronousFileChannel.open(filePath, StandardOpenOption.READ);
         final long fileSize = channel.size();
 
-        final int numThreads = Runtime.getRuntime().availableProcessors();
+        final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
         System.out.println("Количество потоков: " + numThreads);
 
         // Thread-local результаты для каждого потока
@@ -89,7 +89,6 @@ public class SwarAndThreadLocalMaps {
         latch.await();
 
         channel.close();
-        file.close();
 
         System.out.println("Processing complete, merging results...");
 
@@ -119,7 +118,7 @@ public class SwarAndThreadLocalMaps {
         System.out.println(sortedResults);
     }
 
-    private static Map<String, MutableResult> processChunk(final FileChannel channel,
+    private static Map<String, MutableResult> processChunk(final AsynchronousFileChannel channel,
                                                            final long start,
                                                            final long end,
                                                            final int threadId) throws Exception {
@@ -134,45 +133,54 @@ public class SwarAndThreadLocalMaps {
             currentPos = findNextLineStart(channel, start);
         }
 
-        // Буфер для чтения (8 MB на поток)
+        // Двойная буферизация (2 x 8 MB на поток): пока разбираем один буфер, в другой уже идёт чтение.
+        // Перед областью чтения каждого буфера - запас под хвост незавершённой строки,
+        // так что хвост копируется один раз, прямо на своё место в следующем буфере
         final int BUFFER_SIZE = 8 * 1024 * 1024;
-        final byte[] buffer = new byte[BUFFER_SIZE];
-        final byte[] overflow = new byte[256]; // Для неполных строк на границах буфера
+        final int OVERFLOW_SIZE = 256; // Для неполных строк на границах буфера
+        final byte[][] buffers = {
+                new byte[OVERFLOW_SIZE + BUFFER_SIZE],
+                new byte[OVERFLOW_SIZE + BUFFER_SIZE]
+        };
+        int current = 0;
         int overflowLen = 0;
 
         long totalProcessed = 0;
 
-        while (currentPos < end) {
-            int toRead = (int) Math.min(end - currentPos, BUFFER_SIZE - overflowLen);
+        Future<Integer> pending = readAhead(channel, buffers[current], currentPos, end, OVERFLOW_SIZE);
 
-            // Копируем overflow из предыдущей итерации в начало буфера
-            if (overflowLen > 0) {
-                System.arraycopy(overflow, 0, buffer, 0, overflowLen);
-            }
-
-            // Читаем данные из файла
-            ByteBuffer bb = ByteBuffer.wrap(buffer, overflowLen, toRead);
-            int bytesRead = channel.read(bb, currentPos);
+        while (pending != null) {
+            // Ждём чтения текущего буфера (обычно оно уже завершилось за время разбора предыдущего)
+            final int bytesRead = pending.get();
 
             if (bytesRead <= 0) break;
 
-            int totalBytes = overflowLen + bytesRead;
+            final long nextPos = currentPos + bytesRead;
+            final byte[] buffer = buffers[current];
+            final byte[] nextBuffer = buffers[current ^ 1];
+
+            // Сразу запускаем чтение следующего блока
+            pending = nextPos < end ? readAhead(channel, nextBuffer, nextPos, end, OVERFLOW_SIZE) : null;
+
+            final int from = OVERFLOW_SIZE - overflowLen;
+            final int totalBytes = OVERFLOW_SIZE + bytesRead;
 
             // Обрабатываем буфер
-            int processed = processBuffer(buffer, totalBytes, results, currentPos + bytesRead >= end);
+            final int processed = processBuffer(buffer, from, totalBytes, results, nextPos >= end);
 
-            totalProcessed += processed - overflowLen;
+            totalProcessed += processed - OVERFLOW_SIZE;
 
-            // Сохраняем необработанный остаток для следующей итерации
+            // Переносим необработанный остаток вплотную перед областью чтения следующего буфера
             overflowLen = totalBytes - processed;
-            if (overflowLen > 0 && overflowLen < overflow.length) {
-                System.arraycopy(buffer, processed, overflow, 0, overflowLen);
-            } else if (overflowLen >= overflow.length) {
+            if (overflowLen > OVERFLOW_SIZE) {
                 // Строка слишком длинная, пропускаем
                 overflowLen = 0;
+            } else if (overflowLen > 0) {
+                System.arraycopy(buffer, processed, nextBuffer, OVERFLOW_SIZE - overflowLen, overflowLen);
             }
 
-            currentPos += bytesRead;
+            currentPos = nextPos;
+            current ^= 1;
         }
 
         if (threadId == 0) {
@@ -182,10 +190,19 @@ public class SwarAndThreadLocalMaps {
         return results;
     }
 
-    private static long findNextLineStart(final FileChannel channel,
+    private static Future<Integer> readAhead(final AsynchronousFileChannel channel,
+                                             final byte[] buffer,
+                                             final long position,
+                                             final long end,
+                                             final int offset) {
+        final int toRead = (int) Math.min(end - position, buffer.length - offset);
+        return channel.read(ByteBuffer.wrap(buffer, offset, toRead), position);
+    }
+
+    private static long findNextLineStart(final AsynchronousFileChannel channel,
                                           final long position) throws Exception {
         final ByteBuffer buffer = ByteBuffer.allocate(256);
-        channel.read(buffer, position);
+        channel.read(buffer, position).get();
         buffer.flip();
 
         while (buffer.hasRemaining()) {
@@ -198,11 +215,12 @@ public class SwarAndThreadLocalMaps {
     }
 
     private static int processBuffer(final byte[] buffer,
+                                     final int start,
                                      final int length,
                                      final Map<String, MutableResult> results,
                                      final boolean isLastChunk) {
-        int pos = 0;
-        int lastComplete = 0;
+        int pos = start;
+        int lastComplete = start;
 
         while (pos < length) {
             int lineStart = pos;
@@ -1,9 +1,9 @@
 package org.example;
 
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.channels.AsynchronousFileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -52,13 +52,13 @@ public class SwarSolution {
     static void main(final String[] args) throws Exception {
         final long start = System.currentTimeMillis();
 
-        final Path filePath = Path.of("./measurements.txt");
-        final RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "r");
-        final FileChannel channel = file.getChannel();
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+        // Асинхронный канал: следующий буфер читается, пока разбирается текущий
+        final AsynchronousFileChannel channel = AsynchronousFileChannel.open(filePath, StandardOpenOption.READ);
         final long fileSize = channel.size();
 
         // Определяем количество потоков
-        final int numThreads = Runtime.getRuntime().availableProcessors();
+        final int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
         System.out.println("Количество потоков: " + numThreads);
         final long chunkSize = fileSize / numThreads;
         System.out.println("chunkSize: " + (chunkSize / (1024 * 1024)) + "MB");
@@ -89,7 +89,6 @@ public class SwarSolution {
 
         executor.shutdown();
         channel.close();
-        file.close();
 
         final TreeMap<String, MutableResult> sortedResults = new TreeMap<>(finalResults);
 
@@ -97,7 +96,7 @@ public class SwarSolution {
         System.out.println(sortedResults);
     }
 
-    private static Map<String, MutableResult> processChunk(final FileChannel channel,
+    private static Map<String, MutableResult> processChunk(final AsynchronousFileChannel channel,
                                                            final long start,
                                                            final long end) throws Exception {
 
@@ -108,45 +107,66 @@ public class SwarSolution {
             currentPos = findNextLineStart(channel, start);
         }
 
+        // Два буфера по очереди: в один идёт чтение, другой разбирается.
+        // Перед областью чтения оставлен запас под хвост незавершённой строки,
+        // поэтому хвост копируется один раз - сразу в следующий буфер
         final int BUFFER_SIZE = 8 * 1024 * 1024; // 8 MB
-        final byte[] buffer = new byte[BUFFER_SIZE];
-        final byte[] overflow = new byte[256]; // Для неполных строк
+        final int OVERFLOW_SIZE = 256; // Для неполных строк
+        final byte[][] buffers = {
+                new byte[OVERFLOW_SIZE + BUFFER_SIZE],
+                new byte[OVERFLOW_SIZE + BUFFER_SIZE]
+        };
+        int current = 0;
         int overflowLen = 0;
 
-        while (currentPos < end) {
-            final int toRead = (int) Math.min(end - currentPos, BUFFER_SIZE - overflowLen);
+        Future<Integer> pending = readAhead(channel, buffers[current], currentPos, end, OVERFLOW_SIZE);
 
-            // Копируем overflow в начало буфера
-            if (overflowLen > 0) {
-                System.arraycopy(overflow, 0, buffer, 0, overflowLen);
-            }
-
-            final ByteBuffer bb = ByteBuffer.wrap(buffer, overflowLen, toRead);
-            final int bytesRead = channel.read(bb, currentPos);
+        while (pending != null) {
+            final int bytesRead = pending.get();
 
             if (bytesRead <= 0) {
                 break;
             }
 
-            final int totalBytes = overflowLen + bytesRead;
-            final int processed = processBuffer(buffer, totalBytes, results, currentPos + bytesRead >= end);
+            final long nextPos = currentPos + bytesRead;
+            final byte[] buffer = buffers[current];
+            final byte[] nextBuffer = buffers[current ^ 1];
+
+            // Запускаем чтение следующего блока до разбора текущего
+            pending = nextPos < end ? readAhead(channel, nextBuffer, nextPos, end, OVERFLOW_SIZE) : null;
+
+            final int from = OVERFLOW_SIZE - overflowLen;
+            final int totalBytes = OVERFLOW_SIZE + bytesRead;
+            final int processed = processBuffer(buffer, from, totalBytes, results, nextPos >= end);
 
-            // Сохраняем необработанный остаток
+            // Хвост кладём вплотную перед областью чтения следующего буфера
             overflowLen = totalBytes - processed;
-            if (overflowLen > 0 && overflowLen < overflow.length) {
-                System.arraycopy(buffer, processed, overflow, 0, overflowLen);
+            if (overflowLen > OVERFLOW_SIZE) {
+                overflowLen = 0;
+            } else if (overflowLen > 0) {
+                System.arraycopy(buffer, processed, nextBuffer, OVERFLOW_SIZE - overflowLen, overflowLen);
             }
 
-            currentPos += bytesRead;
+            currentPos = nextPos;
+            current ^= 1;
         }
 
         return results;
     }
 
-    private static long findNextLineStart(final FileChannel channel,
+    private static Future<Integer> readAhead(final AsynchronousFileChannel channel,
+                                             final byte[] buffer,
+                                             final long position,
+                                             final long end,
+                                             final int offset) {
+        final int toRead = (int) Math.min(end - position, buffer.length - offset);
+        return channel.read(ByteBuffer.wrap(buffer, offset, toRead), position);
+    }
+
+    private static long findNextLineStart(final AsynchronousFileChannel channel,
                                           final long position) throws Exception {
         final ByteBuffer buffer = ByteBuffer.allocate(1024);
-        channel.read(buffer, position);
+        channel.read(buffer, position).get();
         buffer.flip();
 
         while (buffer.hasRemaining()) {
@@ -159,11 +179,12 @@ public class SwarSolution {
     }
 
     private static int processBuffer(final byte[] buffer,
+                                     final int start,
                                      final int length,
                                      final Map<String, MutableResult> results,
                                      final boolean isLastChunk) {
-        int pos = 0;
-        int lastComplete = 0;
+        int pos = start;
+        int lastComplete = start;
 
         while (pos < length) {
             // Ищем ';' с помощью SWAR
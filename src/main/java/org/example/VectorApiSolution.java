@@ -1,6 +1,8 @@
 package org.example;
 
 import java.lang.foreign.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
@@ -15,8 +17,35 @@ import jdk.incubator.vector.*;
 // Abha=-32,4/18,0/69,1
 public class VectorApiSolution {
 
-    // Wrapper для байтового массива как ключа HashMap
-    static class ByteArrayKey {
+    // -Dmadvise=true: MADV_SEQUENTIAL + MADV_HUGEPAGE на весь маппинг,
+    // MADV_WILLNEED впереди курсора каждого потока и MADV_DONTNEED позади него
+    private static final boolean MADVISE = Boolean.getBoolean("madvise");
+    // -Dpopulate=true: каждый поток заранее подгружает страницы своего чанка (аналог MAP_POPULATE)
+    private static final boolean POPULATE = Boolean.getBoolean("populate");
+    private static final long ADVISE_WINDOW = 32L * 1024 * 1024; // 32 MB
+    // -Daffinity=true: поток i привязывается к i-му CPU (sched_setaffinity), CPU упорядочены по сокетам,
+    // поэтому соседние чанки достаются одному сокету; поток сам подгружает страницы своего чанка (first touch).
+    // -Daffinity.skipSmt=true: не занимать SMT-соседей, по одному потоку на физическое ядро
+    private static final boolean AFFINITY = Boolean.getBoolean("affinity");
+    private static final boolean SKIP_SMT = Boolean.getBoolean("affinity.skipSmt");
+    // -Dbatch=false: построчный разбор температуры вместо пакетного (для сравнения)
+    private static final boolean BATCH = Boolean.parseBoolean(System.getProperty("batch", "true"));
+
+    // Пакетный разбор: слово температуры каждой строки откладывается, затем BATCH_SIZE слов
+    // разбираются сразу по LONG_SPECIES.length() строк за операцию
+    private static final int BATCH_SIZE = 256;
+    private static final VectorSpecies<Long> LONG_SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT_SPECIES =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LONG_SPECIES.vectorBitSize() / 2));
+    private static final ValueLayout.OfLong LONG_LE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Wrapper для байтового массива как ключа HashMap. Хэш и порядок - как в ByteArrayKeySolution.ByteArrayKey:
+    // сидированный StationDictionary.mix по словам вместо 31 * h + b, на котором строится датасет collisions,
+    // и Comparable, чтобы переполненная корзина HashMap стала деревом
+    static class ByteArrayKey implements Comparable<ByteArrayKey> {
+        private static final VarHandle LONG_BYTES =
+                MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
         private final byte[] bytes;
         private final int offset;
         private final int length;
@@ -33,11 +62,17 @@ public class VectorApiSolution {
         }
 
         private int computeHashCode() {
-            int h = 0;
-            for (int i = 0; i < length; i++) {
-                h = 31 * h + bytes[offset + i];
+            long h = StationDictionary.SEED;
+            int i = 0;
+            for (; i + 8 <= length; i += 8) {
+                h = StationDictionary.mix(h, (long) LONG_BYTES.get(bytes, offset + i));
+            }
+            long tail = 0;
+            for (int j = length - 1; j >= i; j--) {
+                tail = (tail << 8) | (bytes[offset + j] & 0xFF);
             }
-            return h;
+            h = StationDictionary.mix(h, tail ^ length);
+            return (int) (h >>> 32);
         }
 
         @Override
@@ -65,27 +100,33 @@ public class VectorApiSolution {
             return true;
         }
 
+        @Override
+        public int compareTo(final ByteArrayKey other) {
+            return Arrays.compareUnsigned(bytes, offset, offset + length,
+                    other.bytes, other.offset, other.offset + other.length);
+        }
+
         // Для финального вывода
         String toStringValue() {
             return new String(bytes, offset, length);
         }
     }
 
-    // Mutable результат для in-place агрегации
+    // Mutable результат для in-place агрегации, температуры в десятых долях
     static class MutableResult {
-        double min = Double.POSITIVE_INFINITY;
-        double max = Double.NEGATIVE_INFINITY;
-        double sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long sum = 0;
         long count = 0;
 
-        void update(final double temperature) {
-            if (temperature < min) {
-                min = temperature;
+        void update(final int tenths) {
+            if (tenths < min) {
+                min = tenths;
             }
-            if (temperature > max) {
-                max = temperature;
+            if (tenths > max) {
+                max = tenths;
             }
-            sum += temperature;
+            sum += tenths;
             count++;
         }
 
@@ -101,19 +142,19 @@ public class VectorApiSolution {
         }
 
         double mean() {
-            return sum / count;
+            return sum / 10.0 / count;
         }
 
         @Override
         public String toString() {
-            return String.format("%.1f/%.1f/%.1f", min, mean(), max);
+            return String.format("%.1f/%.1f/%.1f", min / 10.0, mean(), max / 10.0);
         }
     }
 
     public static void main(final String[] args) throws Exception {
         final long start = System.currentTimeMillis();
 
-        final Path filePath = Path.of("./measurements.txt");
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
 
         // Modern Java: Arena-based MemorySegment for file mapping
         // Arena.ofShared() allows multi-threaded access (ofConfined() is single-threaded only)
@@ -128,8 +169,19 @@ public class VectorApiSolution {
                     arena
             );
 
+            final long[] faultsBefore = Posix.pageFaults();
+            System.out.println("Page faults до: minor=" + faultsBefore[0] + ", major=" + faultsBefore[1]);
+
+            if (MADVISE) {
+                Posix.madvise(fileSegment, 0, fileSize, Posix.MADV_SEQUENTIAL);
+                if (Posix.madvise(fileSegment, 0, fileSize, Posix.MADV_HUGEPAGE) != 0) {
+                    System.out.println("MADV_HUGEPAGE недоступен для этого маппинга");
+                }
+            }
+
             // Определяем количество потоков
-            final int numThreads = Runtime.getRuntime().availableProcessors();
+            final List<CpuTopology.Cpu> cpus = AFFINITY ? CpuTopology.cpus(SKIP_SMT) : List.of();
+            final int numThreads = Integer.getInteger("threads", AFFINITY ? cpus.size() : Runtime.getRuntime().availableProcessors());
             System.out.println("Количество потоков: " + numThreads);
             final long chunkSize = fileSize / numThreads;
             System.out.println("chunkSize: " + (chunkSize / (1024 * 1024)) + "MB");
@@ -137,13 +189,25 @@ public class VectorApiSolution {
             // ExecutorService для параллельной обработки
             final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
             final List<Future<Map<ByteArrayKey, MutableResult>>> futures = new ArrayList<>();
+            final long[] workerNanos = new long[numThreads];
+            final long[] workerBytes = new long[numThreads];
 
             // Разбиваем файл на чанки
             for (int i = 0; i < numThreads; i++) {
+                final int worker = i;
                 final long startPos = i * chunkSize;
                 final long endPos = (i == numThreads - 1) ? fileSize : (i + 1) * chunkSize;
 
-                futures.add(executor.submit(() -> processChunk(fileSegment, startPos, endPos)));
+                futures.add(executor.submit(() -> {
+                    if (AFFINITY && Posix.pinCurrentThread(cpus.get(worker % cpus.size()).id()) != 0) {
+                        System.out.println("sched_setaffinity не удался для CPU " + cpus.get(worker % cpus.size()).id());
+                    }
+                    final long workerStart = System.nanoTime();
+                    final Map<ByteArrayKey, MutableResult> chunkResults = processChunk(fileSegment, startPos, endPos);
+                    workerNanos[worker] = System.nanoTime() - workerStart;
+                    workerBytes[worker] = endPos - startPos;
+                    return chunkResults;
+                }));
             }
 
             // Собираем результаты из всех потоков
@@ -164,6 +228,14 @@ public class VectorApiSolution {
 
             executor.shutdown();
 
+            if (AFFINITY) {
+                printSocketThroughput(cpus, workerNanos, workerBytes);
+            }
+
+            final long[] faultsAfter = Posix.pageFaults();
+            System.out.println("Page faults после: minor=" + faultsAfter[0] + " (+" + (faultsAfter[0] - faultsBefore[0])
+                    + "), major=" + faultsAfter[1] + " (+" + (faultsAfter[1] - faultsBefore[1]) + ")");
+
             // Конвертируем ByteArrayKey в String и сортируем
             final TreeMap<String, MutableResult> sortedResults = new TreeMap<>();
             for (final Map.Entry<ByteArrayKey, MutableResult> entry : finalResults.entrySet()) {
@@ -175,10 +247,32 @@ public class VectorApiSolution {
         }
     }
 
+    // Пропускная способность по сокетам: байты всех потоков сокета / время самого медленного из них
+    private static void printSocketThroughput(final List<CpuTopology.Cpu> cpus,
+                                              final long[] workerNanos,
+                                              final long[] workerBytes) {
+        final TreeMap<Integer, long[]> sockets = new TreeMap<>(); // socket -> {bytes, maxNanos, threads}
+        for (int i = 0; i < workerNanos.length; i++) {
+            final long[] stats = sockets.computeIfAbsent(cpus.get(i % cpus.size()).socket(), socket -> new long[3]);
+            stats[0] += workerBytes[i];
+            stats[1] = Math.max(stats[1], workerNanos[i]);
+            stats[2]++;
+        }
+        for (final Map.Entry<Integer, long[]> entry : sockets.entrySet()) {
+            final long[] stats = entry.getValue();
+            final double mbPerSec = stats[0] / (1024.0 * 1024.0) / (stats[1] / 1e9);
+            System.out.printf("Сокет %d: потоков %d, %.0f MB/s%n", entry.getKey(), stats[2], mbPerSec);
+        }
+    }
+
     private static Map<ByteArrayKey, MutableResult> processChunk(final MemorySegment fileSegment,
                                                                  final long start,
                                                                  final long end) throws Exception {
         final Map<ByteArrayKey, MutableResult> results = new HashMap<>(512);
+        final long[] words = new long[BATCH_SIZE];
+        final MutableResult[] targets = new MutableResult[BATCH_SIZE];
+        final int[] tenths = new int[BATCH_SIZE];
+        int batched = 0;
         long currentPos = start;
 
         // Если не начало файла, ищем начало следующей строки
@@ -186,8 +280,27 @@ public class VectorApiSolution {
             currentPos = findNextLineStart(fileSegment, start, end);
         }
 
+        // С -Daffinity поток уже привязан к своему CPU: страницы чанка подгружаются в локальную NUMA-память
+        if ((POPULATE || AFFINITY) && Posix.madvise(fileSegment, currentPos, end - currentPos, Posix.MADV_POPULATE_READ) != 0) {
+            // Старое ядро без MADV_POPULATE_READ
+            Posix.madvise(fileSegment, currentPos, end - currentPos, Posix.MADV_WILLNEED);
+        }
+        long nextAdvicePos = currentPos;
+        long releasedPos = currentPos;
+
         // Обрабатываем строки
         while (currentPos < end) {
+            if (MADVISE && currentPos >= nextAdvicePos) {
+                // Подгружаем окно впереди и отпускаем уже пройденные страницы с отставанием на окно
+                Posix.madvise(fileSegment, currentPos, Math.min(2 * ADVISE_WINDOW, end - currentPos), Posix.MADV_WILLNEED);
+                final long releaseTo = currentPos - ADVISE_WINDOW;
+                if (releaseTo > releasedPos) {
+                    Posix.release(fileSegment, releasedPos, releaseTo - releasedPos);
+                    releasedPos = releaseTo;
+                }
+                nextAdvicePos = currentPos + ADVISE_WINDOW;
+            }
+
             // Используем Vector API для поиска разделителя ';'
             long semicolonPos = findByteVector(fileSegment, currentPos, end, (byte) ';');
             if (semicolonPos == -1) {
@@ -209,24 +322,95 @@ public class VectorApiSolution {
                     stationLen);
             final ByteArrayKey station = new ByteArrayKey(stationBytes, 0, stationLen);
 
-            // Парсим температуру
-            final double temperature = parseTemperatureFast(fileSegment, semicolonPos + 1, newlinePos);
-
-            // Обновляем результаты
             MutableResult result = results.get(station);
             if (result == null) {
                 result = new MutableResult();
                 results.put(station, result);
             }
-            result.update(temperature);
+
+            // Температура: в пакет или сразу
+            if (BATCH) {
+                words[batched] = temperatureWord(fileSegment, semicolonPos + 1, newlinePos);
+                targets[batched++] = result;
+                if (batched == BATCH_SIZE) {
+                    applyBatch(words, targets, tenths, batched);
+                    batched = 0;
+                }
+            } else {
+                result.update(parseTemperatureFast(fileSegment, semicolonPos + 1, newlinePos));
+            }
 
             // Переходим к следующей строке
             currentPos = newlinePos + 1;
         }
+        applyBatch(words, targets, tenths, batched);
 
         return results;
     }
 
+    private static void applyBatch(final long[] words,
+                                   final MutableResult[] targets,
+                                   final int[] tenths,
+                                   final int count) {
+        decodeTemperatures(words, tenths, count);
+        for (int i = 0; i < count; i++) {
+            targets[i].update(tenths[i]);
+        }
+    }
+
+    // 8 байт с начала температуры, little-endian. У конца файла слово собирается побайтно
+    // до '\n', недостающие байты - нули: разбору нужны только байты до цифры после '.'
+    static long temperatureWord(final MemorySegment segment,
+                                final long start,
+                                final long newlinePos) {
+        if (start + Long.BYTES <= segment.byteSize()) {
+            return segment.get(LONG_LE, start);
+        }
+        long word = 0;
+        for (long pos = newlinePos - 1; pos >= start; pos--) {
+            word = (word << 8) | (segment.get(ValueLayout.JAVA_BYTE, pos) & 0xFF);
+        }
+        return word;
+    }
+
+    // Разбор слов [-]d?d.d в десятые доли, по строке на дорожку вектора. Тот же разбор без ветвлений,
+    // что в StationDictionarySolution.processLine: у цифр бит 0x10 установлен, у '.' - нет, поэтому
+    // позиция '.' - число младших нулей в ~word & 0x10101000; цифры сдвигаются на одно место
+    // и собираются одним умножением. Знак - маска дорожек с '-' в первом байте
+    static void decodeTemperatures(final long[] words,
+                                   final int[] tenths,
+                                   final int count) {
+        final int bound = LONG_SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += LONG_SPECIES.length()) {
+            final LongVector word = LongVector.fromArray(LONG_SPECIES, words, i);
+            final VectorMask<Long> negative = word.and(0xFFL).eq('-');
+            final LongVector decimalSepPos = word.not().and(0x10101000L)
+                    .lanewise(VectorOperators.TRAILING_ZEROS_COUNT);
+            final LongVector digits = word.lanewise(VectorOperators.AND, ~0xFFL, negative)
+                    .lanewise(VectorOperators.LSHL, decimalSepPos.neg().add(28))
+                    .and(0x0F000F0F00L);
+            final LongVector absValue = digits.mul(0x640a0001L)
+                    .lanewise(VectorOperators.LSHR, 32)
+                    .and(0x3FFL);
+            final LongVector value = absValue.lanewise(VectorOperators.NEG, negative);
+            ((IntVector) value.convertShape(VectorOperators.L2I, INT_SPECIES, 0)).intoArray(tenths, i);
+        }
+        // Хвост пакета
+        for (; i < count; i++) {
+            tenths[i] = decodeTemperature(words[i]);
+        }
+    }
+
+    static int decodeTemperature(final long word) {
+        final int decimalSepPos = Long.numberOfTrailingZeros(~word & 0x10101000L);
+        final long signed = (~word << 59) >> 63;
+        final long designMask = ~(signed & 0xFF);
+        final long digits = ((word & designMask) << (28 - decimalSepPos)) & 0x0F000F0F00L;
+        final long absValue = ((digits * 0x640a0001L) >>> 32) & 0x3FF;
+        return (int) ((absValue ^ signed) - signed);
+    }
+
     // Vector API: Поиск байта с использованием SIMD
     private static long findByteVector(final MemorySegment segment,
                                        final long start,
@@ -284,11 +468,11 @@ public class VectorApiSolution {
     }
 
     // Оптимизированный парсинг температуры из MemorySegment
-    // Формат: [-]X.X или [-]XX.X
-    private static double parseTemperatureFast(final MemorySegment segment,
-                                               final long start,
-                                               final long end) {
-        if (start >= end) return 0.0;
+    // Формат: [-]X.X или [-]XX.X, результат в десятых долях
+    private static int parseTemperatureFast(final MemorySegment segment,
+                                            final long start,
+                                            final long end) {
+        if (start >= end) return 0;
 
         long pos = start;
         boolean negative = false;
@@ -318,7 +502,7 @@ public class VectorApiSolution {
             }
         }
 
-        double result = intPart + fracPart * 0.1;
+        final int result = intPart * 10 + fracPart;
         return negative ? -result : result;
     }
 }
@@ -0,0 +1,132 @@
+package org.example;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Маппинг скользящими окнами с ограниченным RSS - для контейнеров с лимитом памяти.
+// Прочитанные страницы маппинга остаются в RSS процесса до unmap, а RSS считается в лимит cgroup:
+// маппинг всего файла (VectorApiSolution) или окон по 2 GB (FileChannelSolution) на большом входе
+// доводит под до OOM kill. Здесь каждый поток мапит окно, разбирает его целые строки тем же
+// StationDictionarySolution.processChunk, закрывает Arena окна (munmap - страницы уходят из RSS)
+// и только потом мапит следующее с начала недоразобранной строки.
+// Резидентно не больше window x threads байт маппинга плюс базовый RSS JVM.
+//
+// -Dwindow.mb=64 - размер окна; -Drss.mb=... - потолок RSS: окно уменьшается до
+// (потолок - базовый RSS) / threads, а если и окна в 1 MB не помещаются - уменьшается число потоков.
+// По умолчанию потолок - половина лимита памяти cgroup, если он есть.
+// Страницы page cache после unmap остаются в cgroup, но это чистые страницы файла - ядро вытесняет их,
+// а не убивает процесс.
+public class WindowedMappingSolution {
+
+    private static final long MB = 1024 * 1024;
+    private static final long MIN_WINDOW = MB;
+    // Запас сверх маппинга: копии хвостов, таблицы потоков, рост кучи во время работы
+    private static final long RSS_SLACK = 32 * MB;
+
+    static void main(final String[] args) throws Exception {
+        final long start = System.currentTimeMillis();
+
+        final Path filePath = Path.of(System.getProperty("file", "./measurements.txt"));
+        final long cgroupMemory = EngineSelector.cgroupMemoryLimit();
+        final long rssCeiling = Long.getLong("rss.mb", cgroupMemory > 0 ? cgroupMemory / 2 / MB : 0) * MB;
+        int numThreads = Integer.getInteger("threads", Runtime.getRuntime().availableProcessors());
+        long window = Long.getLong("window.mb", 64) * MB;
+
+        final long baselineRss = Posix.currentRss();
+        if (rssCeiling > 0) {
+            final long budget = rssCeiling - Math.max(0, baselineRss) - RSS_SLACK;
+            if (budget < MIN_WINDOW * numThreads) {
+                numThreads = (int) Math.max(1, budget / MIN_WINDOW);
+            }
+            window = Math.max(MIN_WINDOW, Math.min(window, budget / numThreads));
+        }
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+
+            final long fileSize = channel.size();
+            System.out.println("Количество потоков: " + numThreads + ", окно: " + window / MB + "MB"
+                    + (rssCeiling > 0 ? ", потолок RSS: " + rssCeiling / MB + "MB" : "")
+                    + ", базовый RSS: " + baselineRss / MB + "MB");
+
+            // Границы кусков - по временному маппингу: касается только страниц у границ, и он сразу закрывается
+            final long[] bounds = new long[numThreads + 1];
+            try (Arena arena = Arena.ofConfined()) {
+                final MemorySegment fileSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+                for (int i = 1; i < numThreads; i++) {
+                    bounds[i] = StationDictionarySolution.alignToLineStart(fileSegment, fileSize / numThreads * i, fileSize);
+                }
+                bounds[numThreads] = fileSize;
+            }
+
+            final StationDictionary dictionary = new StationDictionary();
+            final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            final List<Future<StationStats>> futures = new ArrayList<>();
+            final long windowSize = window;
+            for (int i = 0; i < numThreads; i++) {
+                final long startPos = bounds[i];
+                final long endPos = bounds[i + 1];
+                futures.add(executor.submit(() -> processWindows(channel, startPos, endPos, windowSize, dictionary)));
+            }
+
+            final StationStats finalResults = new StationStats(StationDictionary.MAX_STATIONS);
+            for (final Future<StationStats> future : futures) {
+                finalResults.merge(future.get(), dictionary.size());
+            }
+            executor.shutdown();
+
+            final TreeMap<String, String> sortedResults = new TreeMap<>();
+            for (int id = 0; id < dictionary.size(); id++) {
+                if (finalResults.count[id] > 0) {
+                    sortedResults.put(dictionary.name(id), finalResults.format(id));
+                }
+            }
+
+            System.out.println("Time: " + (System.currentTimeMillis() - start) + "ms");
+            final long peakRss = Posix.peakRss();
+            System.out.println("Пиковый RSS: " + peakRss / MB + "MB" + (rssCeiling > 0
+                    ? (peakRss <= rssCeiling ? " (в пределах потолка)" : " (ПРЕВЫШЕН потолок " + rssCeiling / MB + "MB)")
+                    : ""));
+            System.out.println(sortedResults);
+        }
+    }
+
+    // Окна по очереди: map, разбор целых строк, unmap; следующее окно - с первой неразобранной строки
+    static StationStats processWindows(final FileChannel channel,
+                                       final long start,
+                                       final long end,
+                                       final long window,
+                                       final StationDictionary dictionary) throws Exception {
+        final StationStats stats = new StationStats();
+        long pos = start;
+        while (pos < end) {
+            final long length = Math.min(window, end - pos);
+            try (Arena arena = Arena.ofConfined()) {
+                final MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, pos, length, arena);
+                final long linesEnd = pos + length == end ? length : lastLineEnd(segment, length);
+                stats.merge(StationDictionarySolution.processChunk(segment, length, 0, linesEnd, dictionary, null, null),
+                        dictionary.size());
+                pos += linesEnd;
+            }
+        }
+        return stats;
+    }
+
+    // Позиция после последнего '\n' окна
+    private static long lastLineEnd(final MemorySegment segment,
+                                    final long length) {
+        long pos = length - 1;
+        while (pos >= 0 && segment.get(ValueLayout.JAVA_BYTE, pos) != '\n') {
+            pos--;
+        }
+        if (pos < 0) {
+            throw new IllegalStateException("Строка длиннее окна " + length + " байт");
+        }
+        return pos + 1;
+    }
+}
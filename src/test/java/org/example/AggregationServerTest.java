@@ -0,0 +1,65 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AggregationServerTest {
+
+    @TempDir
+    Path dir;
+
+    // Станций больше, чем вмещает словарь: поток разбора падает, клиент получает 500 с причиной, а не обрыв
+    @Test
+    void aggregationFailureAnswers500() throws Exception {
+        final StringBuilder content = new StringBuilder();
+        for (int station = 0; station <= StationDictionary.MAX_STATIONS; station++) {
+            content.append("s").append(station).append(";1.0\n");
+        }
+        Files.writeString(dir.resolve("stations.txt"), content, StandardCharsets.UTF_8);
+
+        final HttpResponse<String> response = get("/aggregate?file=stations.txt");
+
+        assertEquals(500, response.statusCode());
+        assertTrue(response.body().contains("Слишком много станций"), response.body());
+    }
+
+    // Порядок text - по названию станции, как у движков: St1 раньше St10
+    @Test
+    void textFormatIsOrderedByStation() throws Exception {
+        Files.writeString(dir.resolve("order.txt"), "St10;1.0\nSt1;2.0\nSt2;3.0\n", StandardCharsets.UTF_8);
+
+        final HttpResponse<String> response = get("/aggregate?file=order.txt&format=text");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("{St1=2.0/2.0/2.0, St10=1.0/1.0/1.0, St2=3.0/3.0/3.0}\n", response.body());
+    }
+
+    private HttpResponse<String> get(final String path) throws Exception {
+        try (Aggregator aggregator = new Aggregator(1, 1)) {
+            final HttpServer server = new AggregationServer(dir, Map.of("aggregator", aggregator), 1)
+                    .start(new InetSocketAddress("127.0.0.1", 0), 1);
+            try (HttpClient client = HttpClient.newHttpClient()) {
+                final URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+                return client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            } finally {
+                server.stop(0);
+                ((ExecutorService) server.getExecutor()).shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SortedMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AggregatorTest {
+
+    @TempDir
+    Path dir;
+
+    // Файлы с разными станциями по очереди: вместе их больше MAX_STATIONS, каждый по отдельности - в пределах 1BRC
+    @Test
+    void filesWithDistinctStationsDoNotExhaustDictionary() throws Exception {
+        try (Aggregator aggregator = new Aggregator(2, 1)) {
+            for (int file = 0; file < 5; file++) {
+                final StringBuilder content = new StringBuilder();
+                for (int station = 0; station < 10_000; station++) {
+                    content.append("f").append(file).append("-").append(station).append(";1.5\n");
+                }
+                final Path path = dir.resolve("measurements-" + file + ".txt");
+                Files.writeString(path, content, StandardCharsets.UTF_8);
+
+                final SortedMap<String, String> results = aggregator.aggregate(path);
+
+                assertEquals(10_000, results.size());
+                assertEquals("1.5/1.5/1.5", results.get("f" + file + "-9999"));
+            }
+        }
+    }
+}
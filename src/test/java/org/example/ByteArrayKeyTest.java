@@ -0,0 +1,34 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteArrayKeyTest {
+
+    // Названия датасета collisions совпадают по 31 * h + b; сидированный хэш по словам их различает
+    @Test
+    void collidingNamesGetDistinctHashes() {
+        final byte[][] names = MeasurementsGenerator.collidingNames(1000, 14);
+        final Set<Integer> vectorHashes = new HashSet<>();
+        final Set<Integer> keyHashes = new HashSet<>();
+        for (final byte[] name : names) {
+            vectorHashes.add(new VectorApiSolution.ByteArrayKey(name, 0, name.length).hashCode());
+            keyHashes.add(new ByteArrayKeySolution.ByteArrayKey(name, 0, name.length).hashCode());
+        }
+
+        assertTrue(vectorHashes.size() > 990, "различных хэшей: " + vectorHashes.size());
+        assertTrue(keyHashes.size() > 990, "различных хэшей: " + keyHashes.size());
+    }
+
+    @Test
+    void keysAreOrderedByUnsignedBytes() {
+        final byte[] a = {'a', 'b'};
+        final byte[] b = {'a', (byte) 0xC3};
+
+        assertTrue(new VectorApiSolution.ByteArrayKey(a, 0, 2).compareTo(new VectorApiSolution.ByteArrayKey(b, 0, 2)) < 0);
+    }
+}
@@ -0,0 +1,71 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DelimitedAggregatorTest {
+
+    private static final List<DelimitedAggregator.Aggregate> MIN_MEAN_MAX = List.of(
+            DelimitedAggregator.Aggregate.MIN, DelimitedAggregator.Aggregate.MEAN, DelimitedAggregator.Aggregate.MAX);
+
+    // Поля 8-15 байт и лишние знаки после точки разбираются словами и совпадают с точным значением
+    @Test
+    void longFieldsAndExtraFractionDigits() throws Throwable {
+        final List<String> fields = List.of("12345.678", "-1234567.5", "0.1234567", "123456789012.5", "-12.34567891",
+                "99999999", "-99999999.9", "1234567890.12", "7", "-0.5", "12345678901234", "1.", ".25", "123456789012.3456789");
+        for (int scale = 0; scale <= 4; scale++) {
+            final DelimitedAggregator.Schema schema = new DelimitedAggregator.Schema((byte) ',', false, new int[]{0},
+                    new DelimitedAggregator.Value[]{new DelimitedAggregator.Value(1, scale, MIN_MEAN_MAX)});
+            for (final String field : fields) {
+                final long expected = new BigDecimal(field.endsWith(".") ? field + "0" : field)
+                        .setScale(scale, RoundingMode.DOWN).movePointRight(scale).longValueExact();
+                final long[] merged = aggregate(schema, "k," + field + "\n").results().get("k");
+                assertEquals(expected, merged[2], field + " scale " + scale);
+            }
+        }
+    }
+
+    // Строка с недостающими колонками не захватывает следующую: считается и пропускается
+    @Test
+    void shortRowsAreCountedAndSkipped() throws Throwable {
+        final DelimitedAggregator.Schema schema = new DelimitedAggregator.Schema((byte) ';', false, new int[]{0},
+                new DelimitedAggregator.Value[]{new DelimitedAggregator.Value(2, 1, MIN_MEAN_MAX)});
+
+        final Aggregated aggregated = aggregate(schema, "a;x;1.0\nb;2.0\na;y;3.0\nc\na;z;5.0;extra\n");
+
+        assertEquals(2, aggregated.shortRows());
+        assertEquals(List.of("a"), List.copyOf(aggregated.results().keySet()));
+        assertEquals("[10, 50, 90, 3]", Arrays.toString(aggregated.results().get("a")));
+    }
+
+    private record Aggregated(Map<String, long[]> results,
+                              long shortRows) {
+    }
+
+    private static Aggregated aggregate(final DelimitedAggregator.Schema schema,
+                                        final String content) throws Throwable {
+        final MethodHandle line = DelimitedAggregator.compile(schema);
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        final MemorySegment segment = MemorySegment.ofArray(Arrays.copyOf(bytes, bytes.length + 64));
+        final DelimitedAggregator.LineState state = new DelimitedAggregator.LineState(schema);
+
+        long pos = 0;
+        while (pos < bytes.length) {
+            pos = (long) line.invokeExact(segment, pos, state);
+        }
+        final Map<String, long[]> results = new HashMap<>();
+        state.table.mergeInto(results, schema.delimiter());
+        return new Aggregated(results, state.table.shortRows);
+    }
+}
@@ -0,0 +1,41 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MappedLineSpliteratorTest {
+
+    @TempDir
+    Path dir;
+
+    // Название ровно в 8 байт: ';' этой строки и ';' следующей попадают в одно слово
+    @Test
+    void nameWordWithNextLineSemicolon() throws Exception {
+        final String content = ("abcdefgh;1.0\nab;2.0\nabcdefgh;5.0\nxyz;0.0\n").repeat(100);
+
+        assertEquals("{ab=2.0/2.0/2.0, abcdefgh=1.0/3.0/5.0, xyz=0.0/0.0/0.0}", collect(content, false));
+        assertEquals("{ab=2.0/2.0/2.0, abcdefgh=1.0/3.0/5.0, xyz=0.0/0.0/0.0}", collect(content, true));
+    }
+
+    private String collect(final String content,
+                           final boolean parallel) throws Exception {
+        final Path file = dir.resolve("measurements.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+
+        try (Arena arena = Arena.ofShared();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            return MappedLineSpliterator.stream(segment, parallel).collect(StationCollector.lines()).toString();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultiCursorSolutionTest {
+
+    private static final ValueLayout.OfLong LONG_LE =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Лишняя станция - ошибка, а не бесконечный поиск свободной ячейки
+    @Test
+    void tableRejectsMoreStationsThanDictionaryHolds() {
+        final MultiCursorSolution.StationTable table = new MultiCursorSolution.StationTable();
+        final MemorySegment segment = MemorySegment.ofArray(new byte[16]);
+
+        for (int i = 0; i < StationDictionary.MAX_STATIONS; i++) {
+            find(table, segment, i);
+        }
+        assertEquals(StationDictionary.MAX_STATIONS, table.stations().size());
+
+        final IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> find(table, segment, StationDictionary.MAX_STATIONS));
+        assertTrue(e.getMessage().startsWith("Слишком много станций"));
+    }
+
+    // Название "s<i>" не длиннее 7 байт - целиком в последнем слове
+    private static void find(final MultiCursorSolution.StationTable table,
+                             final MemorySegment segment,
+                             final int i) {
+        final byte[] name = ("s" + i).getBytes(StandardCharsets.UTF_8);
+        segment.fill((byte) 0);
+        MemorySegment.copy(name, 0, segment, ValueLayout.JAVA_BYTE, 0, name.length);
+        final long word = segment.get(LONG_LE, 0);
+        table.find(segment, 0, name.length, word, StationDictionary.mix(0, word));
+    }
+}
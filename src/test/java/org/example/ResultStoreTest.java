@@ -0,0 +1,50 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResultStoreTest {
+
+    @TempDir
+    Path dir;
+
+    // Два id с одним названием (так было при ошибке маски в разборе) - одна запись со слитыми агрегатами
+    @Test
+    void equalNamesAreMergedIntoOneRecord() throws Exception {
+        final List<String> names = List.of("abcdefgh", "ab", "abcdefgh");
+        final StationStats stats = new StationStats(names.size());
+        stats.add(0, 10);
+        stats.add(1, 20);
+        stats.add(2, 50);
+        stats.add(2, 10);
+
+        final Path path = dir.resolve("results.store");
+        ResultStore.write(path, names.size(), names::get, id -> true, stats);
+
+        try (ResultStore store = ResultStore.open(path)) {
+            assertEquals(2, store.size());
+            assertEquals("[ab, abcdefgh]", store.stream().map(ResultStore.Station::name).toList().toString());
+            final ResultStore.Station merged = store.get("abcdefgh").orElseThrow();
+            assertEquals("1.0/2.3/5.0", merged.toString());
+            assertEquals(3, merged.count());
+        }
+    }
+
+    // Чужой файл - IllegalArgumentException, а не IllegalStateException от второго закрытия арены
+    @Test
+    void openRejectsNonStoreFile() throws Exception {
+        final Path path = dir.resolve("measurements.txt");
+        Files.writeString(path, "Abha;1.0\n".repeat(100), StandardCharsets.UTF_8);
+
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ResultStore.open(path));
+        assertEquals("Не файл результатов", e.getMessage());
+    }
+}
@@ -0,0 +1,39 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SharedStationTableTest {
+
+    // Названия с одинаковым хэшем: за пределом цепочки проб слоты выдаёт overflow, агрегаты не смешиваются
+    @Test
+    void equalHashesFallBackToOverflowSlots() {
+        final SharedStationTable table = new SharedStationTable(2);
+        final int stations = 200;
+        for (int i = 0; i < stations; i++) {
+            table.add(slotOf(table, "station-" + i), i % 2, i);
+            table.add(slotOf(table, "station-" + i), (i + 1) % 2, -i);
+        }
+
+        assertEquals(stations, table.size());
+        assertEquals(stations, table.sortedResults().size());
+        assertEquals("-19.9/0.0/19.9", table.sortedResults().get("station-199"));
+    }
+
+    private static int slotOf(final SharedStationTable table,
+                              final String name) {
+        final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        final byte[] padded = new byte[bytes.length + 8];
+        System.arraycopy(bytes, 0, padded, 0, bytes.length);
+        final int fullWords = bytes.length / 8;
+        long lastWord = 0;
+        for (int i = bytes.length - 1; i >= fullWords * 8; i--) {
+            lastWord = (lastWord << 8) | (bytes[i] & 0xFF);
+        }
+        return table.slotOf(MemorySegment.ofArray(padded), 0, bytes.length, lastWord, 42);
+    }
+}
@@ -0,0 +1,99 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StationDictionarySolutionTest {
+
+    @TempDir
+    Path dir;
+
+    // Название ровно в 8 байт: ';' этой строки и ';' следующей попадают в одно слово
+    private static final String SEMICOLONS_IN_ONE_WORD = "abcdefgh;1.0\nab;2.0\n";
+
+    @Test
+    void nameWordWithNextLineSemicolonInTail() throws Exception {
+        final TreeMap<String, String> results = aggregate(SEMICOLONS_IN_ONE_WORD);
+
+        assertEquals("{ab=2.0/2.0/2.0, abcdefgh=1.0/1.0/1.0}", results.toString());
+    }
+
+    // То же название со следующими строками разной длины - один id, а не по id на соседа
+    @Test
+    void nameWordWithNextLineSemicolonGetsOneId() throws Exception {
+        final TreeMap<String, String> results = aggregate(SEMICOLONS_IN_ONE_WORD + "abcdefgh;5.0\nxyz;0.0\nabcdefgh;1.0\n");
+
+        assertEquals("{ab=2.0/2.0/2.0, abcdefgh=1.0/2.3/5.0, xyz=0.0/0.0/0.0}", results.toString());
+    }
+
+    // Достаточно строк, чтобы разбор шёл по маппингу, а не по копии хвоста
+    @Test
+    void nameWordWithNextLineSemicolonInMappedPart() throws Exception {
+        final TreeMap<String, String> results = aggregate((SEMICOLONS_IN_ONE_WORD + "abcdefgh;5.0\nxyz;0.0\n").repeat(100));
+
+        assertEquals("{ab=2.0/2.0/2.0, abcdefgh=1.0/3.0/5.0, xyz=0.0/0.0/0.0}", results.toString());
+    }
+
+    // Строгий режим разбирает название своим циклом - та же маска, те же входы
+    @Test
+    void strictModeNameWordWithNextLineSemicolon() throws Exception {
+        final LineValidator validator = new LineValidator();
+        final TreeMap<String, String> results = aggregate((SEMICOLONS_IN_ONE_WORD + "abcdefgh;5.0\nxyz;0.0\n").repeat(100), validator);
+
+        assertEquals("{ab=2.0/2.0/2.0, abcdefgh=1.0/3.0/5.0, xyz=0.0/0.0/0.0}", results.toString());
+        assertEquals(0, validator.totalRejected());
+    }
+
+    // Неверные названия не занимают id в словаре: их больше MAX_STATIONS, а строгий режим их только отклоняет
+    @Test
+    void strictModeRejectsMoreInvalidNamesThanDictionaryHolds() throws Exception {
+        final StringBuilder content = new StringBuilder();
+        final int invalid = StationDictionary.MAX_STATIONS + 1000;
+        for (int i = 0; i < invalid; i++) {
+            content.append("bad\u0001").append(i).append(";1.0\n");
+        }
+        content.append("ok;2.0\n");
+        final LineValidator validator = new LineValidator();
+
+        final TreeMap<String, String> results = aggregate(content.toString(), validator);
+
+        assertEquals("{ok=2.0/2.0/2.0}", results.toString());
+        assertEquals(invalid, validator.totalRejected());
+    }
+
+    private TreeMap<String, String> aggregate(final String content) throws Exception {
+        return aggregate(content, null);
+    }
+
+    private TreeMap<String, String> aggregate(final String content,
+                                              final LineValidator validator) throws Exception {
+        final Path file = dir.resolve("measurements.txt");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            final MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+            final StationDictionary dictionary = new StationDictionary();
+            final StationStats stats = StationDictionarySolution.processChunk(segment, fileSize, 0, fileSize, dictionary, null, validator);
+
+            final TreeMap<String, String> results = new TreeMap<>();
+            for (int id = 0; id < dictionary.size(); id++) {
+                final String previous = results.put(dictionary.name(id), stats.format(id));
+                assertEquals(null, previous, "станция с двумя id: " + dictionary.name(id));
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StationDictionaryTest {
+
+    // Переключённый бит 63 в двух словах снимается следующим шагом только без свёртки после умножения
+    @Test
+    void bit63FlipsInTwoWordsChangeHash() {
+        final long a = StationDictionary.mix(StationDictionary.mix(StationDictionary.SEED, 0x6867666564636261L), 0x706F6E6D6C6B6A69L);
+        final long b = StationDictionary.mix(StationDictionary.mix(StationDictionary.SEED, 0xE867666564636261L), 0xF06F6E6D6C6B6A69L);
+
+        assertTrue(a != b);
+    }
+
+    // Названия с одинаковым хэшем: цепочка проб не длиннее предела, остальные - в overflow, id стабильны
+    @Test
+    void equalHashesFallBackToOverflow() {
+        final StationDictionary dictionary = new StationDictionary();
+        final int stations = 200;
+        final int[] ids = new int[stations];
+        for (int i = 0; i < stations; i++) {
+            ids[i] = idOf(dictionary, "station-" + i);
+        }
+        for (int i = 0; i < stations; i++) {
+            assertEquals(ids[i], idOf(dictionary, "station-" + i));
+            assertEquals("station-" + i, dictionary.name(ids[i]));
+        }
+
+        assertEquals(stations, dictionary.size());
+        assertTrue(dictionary.maxProbe() <= 64);
+        assertEquals(stations - 64, dictionary.overflowSize());
+    }
+
+    private static int idOf(final StationDictionary dictionary,
+                            final String name) {
+        final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        final byte[] padded = new byte[bytes.length + 8];
+        System.arraycopy(bytes, 0, padded, 0, bytes.length);
+        final MemorySegment segment = MemorySegment.ofArray(padded);
+        final int fullWords = bytes.length / 8;
+        long lastWord = 0;
+        for (int i = bytes.length - 1; i >= fullWords * 8; i--) {
+            lastWord = (lastWord << 8) | (bytes[i] & 0xFF);
+        }
+        return dictionary.idOf(segment, 0, bytes.length, lastWord, 42);
+    }
+}
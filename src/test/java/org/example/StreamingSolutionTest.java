@@ -0,0 +1,44 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamingSolutionTest {
+
+    // Обрыв соединения посреди строки: в разбор уходит только то, что заканчивается целой температурой
+    @Test
+    void truncatedLastLineIsDropped() throws Exception {
+        assertEquals("Oslo;1.0\n", blocks("Oslo;1.0\nAbha"));
+        assertEquals("Oslo;1.0\n", blocks("Oslo;1.0\nAbha;"));
+        assertEquals("Oslo;1.0\n", blocks("Oslo;1.0\nAbha;1"));
+        assertEquals("Oslo;1.0\n", blocks("Oslo;1.0\nAbha;-"));
+        assertEquals("Oslo;1.0\n", blocks("Oslo;1.0\nAbha;12."));
+        assertEquals("Oslo;1.0\nAbha;-12.3\n", blocks("Oslo;1.0\nAbha;-12.3"));
+        assertEquals("Oslo;1.0\nAbha;1.3\n", blocks("Oslo;1.0\nAbha;1.3"));
+        assertEquals("Oslo;1.0\n", blocks("Oslo;1.0\n"));
+    }
+
+    private static String blocks(final String content) throws Exception {
+        final BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(1);
+        freeBuffers.add(new byte[128 + 8 * 1024 * 1024 + 128]);
+        final BlockingQueue<StreamingSolution.Block> blocks = new ArrayBlockingQueue<>(1);
+
+        try (ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)))) {
+            StreamingSolution.readBlocks(channel, blocks, freeBuffers, List.of());
+        }
+        final StreamingSolution.Block block = blocks.poll();
+        if (block == null) {
+            return "";
+        }
+        return new String(block.buffer(), block.from(), block.to() - block.from(), StandardCharsets.UTF_8);
+    }
+}